@@ -1,100 +1,348 @@
 package com.pinframework;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.pinframework.exceptions.PinBadRequestException;
-import com.pinframework.exceptions.PinInitializationException;
+import com.pinframework.exceptions.PinDeadlineExceededException;
+import com.pinframework.exceptions.PinPayloadTooLargeException;
+import com.pinframework.exceptions.PinRuntimeException;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 public class PinAdapter implements HttpHandler {
     private static final Logger LOG = LoggerFactory.getLogger(PinAdapter.class);
 
-    private static class PinHandlerRender {
-        private final PinHandler pinHandler;
-        private final PinRender pinRender;
+    static final int DEFAULT_RESPONSE_BUFFER_BYTES = 8192;
 
-        public PinHandlerRender(PinHandler pinHandler, PinRender pinRender) {
-            this.pinHandler = pinHandler;
-            this.pinRender = pinRender;
-        }
-    }
-
-    private final Map<String, Map<String, PinHandlerRender>> handlerByMethodAndPath = new HashMap<>();
+    /**
+     * Replaced, never modified, when routes are added or removed. Request threads just read it
+     */
+    private volatile PinRouter router = new PinRouter();
 
     private final Gson gson;
 
+    /**
+     * Used when no route matches, may be null
+     */
+    private final HttpHandler fallbackHandler;
+
+    /**
+     * Shared by every adapter of a server, so it knows what is still running when it drains
+     */
+    private final PinInFlightTracker inFlightTracker;
+
+    /**
+     * Responses up to this size are sent with Content-Length, bigger ones chunked
+     */
+    private final int responseBufferBytes;
+
     public PinAdapter(String method, String fullPath, PinHandler pinHandler, PinRender pinRender, Gson gson) {
-        Map<String, PinHandlerRender> map = new HashMap<>();
-        map.put(fullPath, new PinHandlerRender(pinHandler, pinRender));
-        handlerByMethodAndPath.put(method, map);
+        this(new PinRoute(method, fullPath, pinHandler, pinRender), gson, new PinInFlightTracker(),
+                DEFAULT_RESPONSE_BUFFER_BYTES);
+    }
+
+    PinAdapter(PinRoute route, Gson gson, PinInFlightTracker inFlightTracker, int responseBufferBytes) {
+        router = router.withRoute(route);
+        this.gson = gson;
+        this.fallbackHandler = null;
+        this.inFlightTracker = inFlightTracker;
+        this.responseBufferBytes = responseBufferBytes;
+    }
+
+    /**
+     * An adapter with no routes yet, any request not matching a route is handed to fallbackHandler
+     *
+     * @param gson            used to read and write json
+     * @param inFlightTracker shared by every adapter of the server
+     * @param fallbackHandler handles every request without a matching route, usually static files. It must track
+     *                        its own requests
+     * @param responseBufferBytes responses up to this size are sent with Content-Length
+     */
+    PinAdapter(Gson gson, PinInFlightTracker inFlightTracker, HttpHandler fallbackHandler, int responseBufferBytes) {
         this.gson = gson;
+        this.fallbackHandler = fallbackHandler;
+        this.inFlightTracker = inFlightTracker;
+        this.responseBufferBytes = responseBufferBytes;
     }
 
     public void put(String method, String fullPath, PinHandler pinHandler, PinRender pinRender) {
-        if (handlerByMethodAndPath.containsKey(method)) {
-            var map = handlerByMethodAndPath.get(method);
-            if (map.containsKey(fullPath)) {
-                throw new PinInitializationException(
-                        "PinHandler already present method = '" + method + "' and full path = '" + fullPath + "'");
-            } else {
-                map.put(fullPath, new PinHandlerRender(pinHandler, pinRender));
-            }
-        } else {
-            Map<String, PinHandlerRender> map = new HashMap<>();
-            map.put(fullPath, new PinHandlerRender(pinHandler, pinRender));
-            handlerByMethodAndPath.put(method, map);
-        }
+        put(new PinRoute(method, fullPath, pinHandler, pinRender));
+    }
+
+    synchronized void put(PinRoute route) {
+        router = router.withRoute(route);
+    }
 
+    /**
+     * @param method   http method
+     * @param fullPath the full path exactly as it was registered
+     * @return true if the route was present
+     */
+    synchronized boolean remove(String method, String fullPath) {
+        PinRouter current = router;
+        router = current.withoutRoute(method, fullPath);
+        return router != current;
+    }
+
+    boolean isEmpty() {
+        return router.isEmpty();
+    }
+
+    List<PinRoute> getRoutes() {
+        return router.getRoutes();
     }
 
     @Override
     public void handle(HttpExchange httpExchange) throws IOException {
+        long startNanos = System.nanoTime();
         String method = httpExchange.getRequestMethod();
-        Map<String, PinHandlerRender> pinHandlerMap = handlerByMethodAndPath.get(method);
-        if (pinHandlerMap == null) {
+        PinRouter currentRouter = router;
+        if (fallbackHandler != null) {
+            handleWithFallback(httpExchange, currentRouter, method, startNanos);
+            return;
+        }
+        if (!inFlightTracker.enter(httpExchange)) {
+            return;
+        }
+        if (!currentRouter.hasMethod(method)) {
             LOG.error("Error trying to access '{}', wrong method '{}'", httpExchange.getRequestURI().getPath(),
                     method);
-            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, 0);
-            //TODO: devolver mas info?
-            httpExchange.close();
+            try {
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                //TODO: devolver mas info?
+                httpExchange.close();
+            } finally {
+                inFlightTracker.exit();
+            }
             return;
         }
-        PinHandlerRenderWithPathParams pinHandlerRenderWithPathParams = findMatchingPinHandler(httpExchange.getRequestURI().getPath(),
-                pinHandlerMap);
-        if (pinHandlerRenderWithPathParams == null) {
+        PinRouteMatch routeMatch = currentRouter.find(method, httpExchange.getRequestURI().getPath());
+        if (routeMatch == null) {
             LOG.error("No handler found for '{}' and method '{}'", httpExchange.getRequestURI().getPath(),
                     method);
-            httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, 0);
-            //TODO: devolver mas info?
-            httpExchange.close();
+            try {
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                //TODO: devolver mas info?
+                httpExchange.close();
+            } finally {
+                inFlightTracker.exit();
+            }
+            return;
+        }
+        dispatchRoute(httpExchange, routeMatch, startNanos);
+    }
+
+    private void handleWithFallback(HttpExchange httpExchange, PinRouter currentRouter, String method, long startNanos)
+            throws IOException {
+        String path = httpExchange.getRequestURI().getPath();
+        PinRouteMatch routeMatch = currentRouter.find(method, path);
+        if (routeMatch != null) {
+            if (inFlightTracker.enter(httpExchange)) {
+                dispatchRoute(httpExchange, routeMatch, startNanos);
+            }
+        } else if (currentRouter.matchesOtherMethod(method, path)) {
+            if (!inFlightTracker.enter(httpExchange)) {
+                return;
+            }
+            LOG.error("Error trying to access '{}', wrong method '{}'", path, method);
+            try {
+                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                httpExchange.close();
+            } finally {
+                inFlightTracker.exit();
+            }
+        } else {
+            fallbackHandler.handle(httpExchange);
+        }
+    }
+
+    /**
+     * Hands the route to its worker pool. If the pool turns it down, the 503 is already sent and only stats are left.
+     * <br>
+     * The request is already counted in inFlightTracker, from here on whoever answers it must call exit()
+     */
+    private void dispatchRoute(HttpExchange httpExchange, PinRouteMatch routeMatch, long startNanos) {
+        PinRoute route = routeMatch.getRoute();
+        PinBodyBudget bodyBudget = route.getBodyBudget();
+        if (bodyBudget != null && !admitBody(httpExchange, route, bodyBudget, startNanos)) {
+            inFlightTracker.exit();
             return;
         }
-        PinExchange pinExchange = new PinExchange(httpExchange, gson, pinHandlerRenderWithPathParams.pathParams);
-        PinRender pinRender = pinHandlerRenderWithPathParams.pinHandlerRender.pinRender;
+        PinAdaptiveLimiter adaptiveLimiter = route.getAdaptiveLimiter();
+        if (adaptiveLimiter != null && !adaptiveLimiter.tryAcquire()) {
+            LOG.debug("'{}' reached its concurrency limit {}, answering 503", route, adaptiveLimiter.getLimit());
+            PinQuickResponse.serviceUnavailable(httpExchange, route.getWorkerPool().getRetryAfterSeconds());
+            route.getStats().record(HttpURLConnection.HTTP_UNAVAILABLE, PinQuickResponse.SERVICE_UNAVAILABLE_LENGTH,
+                    System.nanoTime() - startNanos);
+            releaseBody(httpExchange);
+            inFlightTracker.exit();
+            return;
+        }
+        PinExchange pinExchange = new PinExchange(httpExchange, gson, routeMatch.getPathParams());
+        if (!route.getWorkerPool().dispatch(httpExchange, pinExchange,
+                () -> handleRoute(httpExchange, pinExchange, route, startNanos))) {
+            route.getStats().record(HttpURLConnection.HTTP_UNAVAILABLE, PinQuickResponse.SERVICE_UNAVAILABLE_LENGTH,
+                    System.nanoTime() - startNanos);
+            if (adaptiveLimiter != null) {
+                adaptiveLimiter.releaseWithoutSample();
+            }
+            releaseBody(httpExchange);
+            inFlightTracker.exit();
+        }
+    }
+
+    /**
+     * Reserves the body of the request in bodyBudget, or answers 413 or 503 if it does not fit
+     *
+     * @return false if the request was answered
+     */
+    private static boolean admitBody(HttpExchange httpExchange, PinRoute route, PinBodyBudget bodyBudget,
+            long startNanos) {
+        long declaredBytes = PinBodyBudget.declaredBodyBytes(httpExchange);
+        if (declaredBytes == 0) {
+            return true;
+        }
+        if (declaredBytes > bodyBudget.getMaxBodyBytes()) {
+            LOG.debug("'{}' body of {} bytes is over {}, answering 413", route, declaredBytes,
+                    bodyBudget.getMaxBodyBytes());
+            PinQuickResponse.payloadTooLarge(httpExchange);
+            route.getStats().record(413, PinQuickResponse.PAYLOAD_TOO_LARGE_LENGTH, System.nanoTime() - startNanos);
+            return false;
+        }
+        long reservedBytes = declaredBytes < 0 ? bodyBudget.getMaxBodyBytes() : declaredBytes;
+        if (!bodyBudget.tryReserve(reservedBytes)) {
+            LOG.debug("'{}' body budget is exhausted, answering 503", route);
+            PinQuickResponse.serviceUnavailable(httpExchange, route.getWorkerPool().getRetryAfterSeconds());
+            route.getStats().record(HttpURLConnection.HTTP_UNAVAILABLE, PinQuickResponse.SERVICE_UNAVAILABLE_LENGTH,
+                    System.nanoTime() - startNanos);
+            return false;
+        }
+        httpExchange.setStreams(new PinBodyLimitInputStream(httpExchange.getRequestBody(), reservedBytes, bodyBudget),
+                null);
+        return true;
+    }
+
+    /**
+     * Gives back the body reserved by admitBody, if any
+     */
+    private static void releaseBody(HttpExchange httpExchange) {
+        InputStream requestBody = httpExchange.getRequestBody();
+        if (requestBody instanceof PinRequestDeadline.GuardedInputStream) {
+            requestBody = ((PinRequestDeadline.GuardedInputStream) requestBody).getGuarded();
+        }
+        if (requestBody instanceof PinBodyLimitInputStream) {
+            ((PinBodyLimitInputStream) requestBody).release();
+        }
+    }
+
+    private void handleRoute(HttpExchange httpExchange, PinExchange pinExchange, PinRoute route, long startNanos) {
+        PinCountingOutputStream countingOutputStream = new PinCountingOutputStream(httpExchange.getResponseBody());
+        httpExchange.setStreams(null, countingOutputStream);
+        pinExchange.setInFlightTracker(inFlightTracker);
+        PinRequestDeadline deadline = null;
+        if (route.getDeadlineNanos() > 0) {
+            long deadlineNanos = startNanos + route.getDeadlineNanos();
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                //it waited too long for a thread, the handler is not even started
+                respondDeadlineExceeded(httpExchange, route, countingOutputStream, startNanos);
+                return;
+            }
+            pinExchange.setDeadlineNanos(deadlineNanos);
+            deadline = new PinRequestDeadline(
+                    () -> respondDeadlineExceeded(httpExchange, route, countingOutputStream, startNanos));
+            httpExchange.setStreams(deadline.guard(httpExchange.getRequestBody()),
+                    deadline.guard(countingOutputStream));
+            deadline.handlerStarted();
+            deadline.schedule(remainingNanos);
+        }
+        PinAsyncHandler pinAsyncHandler = route.getPinAsyncHandler();
+        PinResponse pinResponse = null;
+        CompletableFuture<PinResponse> future = null;
+        Exception failure = null;
+        try {
+            if (pinAsyncHandler == null) {
+                pinResponse = route.getPinHandler().handle(pinExchange);
+            } else {
+                future = Objects.requireNonNull(pinAsyncHandler.handle(pinExchange), "PinAsyncHandler returned a null future");
+            }
+        } catch (Exception ex) {
+            failure = ex;
+        } finally {
+            if (deadline != null) {
+                deadline.handlerReturned();
+            }
+        }
+        if (future == null) {
+            respond(httpExchange, route, pinResponse, failure, deadline, countingOutputStream, startNanos);
+            return;
+        }
+        //this thread is free now, the response is written by whoever completes the future
+        PinRequestDeadline futureDeadline = deadline;
+        future.whenComplete((asyncResponse, throwable) -> respond(httpExchange, route, asyncResponse,
+                throwable == null ? null : unwrap(throwable), futureDeadline, countingOutputStream, startNanos));
+        if (deadline != null) {
+            deadline.futureReturned(future);
+        }
+    }
+
+    private static Exception unwrap(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause()
+                : throwable;
+        return cause instanceof Exception ? (Exception) cause : new PinRuntimeException("Async handler failed", cause);
+    }
+
+    /**
+     * @param pinResponse what the handler returned, null if it failed
+     * @param failure     what the handler threw, null if it did not
+     * @param deadline    null if the route has no deadline
+     */
+    private void respond(HttpExchange httpExchange, PinRoute route, PinResponse pinResponse, Exception failure,
+            PinRequestDeadline deadline, PinCountingOutputStream countingOutputStream, long startNanos) {
+        if (deadline != null && !deadline.answer()) {
+            LOG.debug("'{}' answered after its deadline, response dropped", route);
+            return;
+        }
+        PinRender pinRender = route.getPinRender();
         boolean keepResponseOpen = false;
         try {
-            PinResponse pinResponse = pinHandlerRenderWithPathParams.pinHandlerRender.pinHandler.handle(pinExchange);
+            if (failure != null) {
+                throw failure;
+            }
             pinRender.changeHeaders(httpExchange.getResponseHeaders());
             keepResponseOpen = pinResponse.keepResponseOpen();
-            if (!keepResponseOpen) {
-                httpExchange.sendResponseHeaders(pinResponse.getStatus(), 0);
+            if (keepResponseOpen) {
+                pinRender.render(pinResponse.getObj(), httpExchange.getResponseBody());
+            } else {
+                renderBuffered(httpExchange, pinResponse.getStatus(), pinRender, pinResponse.getObj(),
+                        route.getCompression());
+            }
+        } catch (PinPayloadTooLargeException ptle) {
+            LOG.debug("Request body too large", ptle);
+            try {
+                pinRender.changeHeaders(httpExchange.getResponseHeaders());
+                httpExchange.getResponseHeaders().set("Connection", "close");
+                renderBuffered(httpExchange, 413, pinRender, ptle, null);
+            } catch (Exception ex2) {
+                LOG.error("Unexpected exception, can not write the response of a too large body", ex2);
             }
-            pinRender.render(pinResponse.getObj(), httpExchange.getResponseBody());
         } catch (PinBadRequestException bre) {
             // this is an expected behaviour , so no error
             LOG.debug("Exception trying to read data", bre);
             try {
                 pinRender.changeHeaders(httpExchange.getResponseHeaders());
-                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, 0);
-                pinRender.render(bre, httpExchange.getResponseBody());
+                renderBuffered(httpExchange, HttpURLConnection.HTTP_BAD_REQUEST, pinRender, bre, null);
             } catch (Exception ex2) {
                 LOG.error("Unexpected exception, can not write the response of a bad request", ex2);
             }
@@ -103,8 +351,7 @@ public class PinAdapter implements HttpHandler {
             LOG.error("Unexpected exception, will return HTTP_INTERNAL_ERROR = 500", ex);
             try {
                 pinRender.changeHeaders(httpExchange.getResponseHeaders());
-                httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, 0);
-                pinRender.render(ex, httpExchange.getResponseBody());
+                renderBuffered(httpExchange, HttpURLConnection.HTTP_INTERNAL_ERROR, pinRender, ex, null);
             } catch (Exception ex2) {
                 LOG.error("More unexpected exception, can not even write the error response about an internal error!", ex2);
             }
@@ -112,73 +359,61 @@ public class PinAdapter implements HttpHandler {
             if (!keepResponseOpen) {
                 httpExchange.close();
             }
+            finish(httpExchange, route, countingOutputStream, startNanos);
         }
     }
 
-    private static class PinHandlerRenderWithPathParams {
-        private final PinHandlerRender pinHandlerRender;
-        private final Map<String, String> pathParams;
-
-        public PinHandlerRenderWithPathParams(PinHandlerRender pinHandlerRender, Map<String, String> pathParams) {
-            this.pinHandlerRender = pinHandlerRender;
-            this.pathParams = pathParams;
-        }
-    }
-
-    private PinHandlerRenderWithPathParams findMatchingPinHandler(String requestURIPath, Map<String, PinHandlerRender> pinHandlerMap) {
-        Map<String, PinHandlerRenderWithPathParams> matchingMap = new HashMap<>();
-        for (var entry : pinHandlerMap.entrySet()) {
-            String path = entry.getKey();
-            PinHandlerRender pinHandlerRender = entry.getValue();
-            UriMatchesWithPathParams uriMatchesWithPathParams = uriMatchesWithParams(path, requestURIPath);
-            if (uriMatchesWithPathParams.matches) {
-                matchingMap.put(path, new PinHandlerRenderWithPathParams(pinHandlerRender, uriMatchesWithPathParams.pathParams));
-            }
-        }
-
-        if (matchingMap.isEmpty()) {
-            LOG.error("Zero handler found for requestURI.path {}: {}", requestURIPath, pinHandlerMap.keySet());
+    /**
+     * Renders obj into a PinResponseBuffer, so small responses are sent with Content-Length. If render fails
+     * before the threshold nothing was sent, and the error response can still be rendered
+     *
+     * @param compression null to send it as it is
+     */
+    private void renderBuffered(HttpExchange httpExchange, int status, PinRender pinRender, Object obj,
+            PinCompression compression) throws Exception {
+        OutputStream body = compression == null ? null
+                : compression.open(httpExchange, status, responseBufferBytes);
+        if (body == null) {
+            body = new PinResponseBuffer(httpExchange, status, responseBufferBytes);
         }
-        if (matchingMap.size() == 1) {
-            return matchingMap.values().iterator().next();
-        }
-        LOG.error("More than one handler for requestURI.path {}: {}", requestURIPath, matchingMap.entrySet());
-        return null;
+        pinRender.render(obj, body);
+        //renders are not forced to close
+        body.close();
     }
 
-    private static class UriMatchesWithPathParams {
-        private final boolean matches;
-        private final Map<String, String> pathParams;
-
-        public UriMatchesWithPathParams(boolean matches, Map<String, String> pathParams) {
-            this.matches = matches;
-            this.pathParams = pathParams;
+    /**
+     * 504 through the route render, like any other error
+     */
+    private void respondDeadlineExceeded(HttpExchange httpExchange, PinRoute route,
+            PinCountingOutputStream countingOutputStream, long startNanos) {
+        LOG.warn("'{}' did not answer '{}' before its deadline, will return HTTP_GATEWAY_TIMEOUT = 504", route,
+                httpExchange.getRequestURI().getPath());
+        PinRender pinRender = route.getPinRender();
+        try {
+            pinRender.changeHeaders(httpExchange.getResponseHeaders());
+            renderBuffered(httpExchange, HttpURLConnection.HTTP_GATEWAY_TIMEOUT, pinRender,
+                    new PinDeadlineExceededException("Deadline exceeded for " + route), null);
+        } catch (Exception ex) {
+            LOG.debug("Can not write the deadline exceeded response", ex);
+        } finally {
+            httpExchange.close();
+            finish(httpExchange, route, countingOutputStream, startNanos);
         }
     }
 
-    private UriMatchesWithPathParams uriMatchesWithParams(String key, String requestURIPath) {
-        //key and requestURIPath starts with /, substring to ignore it
-        //key and/or requestURIPath may end with /, PinUtils to remove
-        var keyParts = PinUtils.removeTrailingSlash(key.substring(1)).split("/", -1);
-        var pathParts = PinUtils.removeTrailingSlash(requestURIPath.substring(1)).split("/", -1);
-        if (keyParts.length != pathParts.length) {
-            return new UriMatchesWithPathParams(false, null);
-        }
-        Map<String, String> pathParams = new HashMap<>();
-        for (var i = 0; i < keyParts.length; i++) {
-            String keyPart = keyParts[i];
-            String pathPart = pathParts[i];
-            char firstCharOfKey = keyPart.charAt(0);
-            if (firstCharOfKey == ':') {
-                //substring(1) to remove semicolon
-                pathParams.put(keyPart.substring(1), pathPart);
-            }
-            if (firstCharOfKey != ':' && !keyPart.equals(pathPart)) {
-                return new UriMatchesWithPathParams(false, null);
-            }
+    /**
+     * Everything to do once a route request is answered, whoever answered it
+     */
+    private void finish(HttpExchange httpExchange, PinRoute route, PinCountingOutputStream countingOutputStream,
+            long startNanos) {
+        releaseBody(httpExchange);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        route.getStats().record(httpExchange.getResponseCode(), countingOutputStream.getCount(), elapsedNanos);
+        PinAdaptiveLimiter adaptiveLimiter = route.getAdaptiveLimiter();
+        if (adaptiveLimiter != null) {
+            adaptiveLimiter.release(elapsedNanos);
         }
-        return new UriMatchesWithPathParams(true, pathParams);
-
+        inFlightTracker.exit();
     }
 
 }
@@ -0,0 +1,145 @@
+package com.pinframework;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many requests of one route run at the same time, and finds the limit by itself.<br>
+ * Every window of samples it compares the latest round trip time with the long term one. While they are close the
+ * limit grows a bit, when latency rises, because a database or some other dependency slowed down, the limit shrinks
+ * in proportion, so requests are turned away with a quick 503 instead of piling up in front of the slow
+ * dependency.<br>
+ * Gradient algorithm, round trip time counted from the request arrival, so queue time is included.<br>
+ * Samples are recorded without locking, only the request closing a window takes the lock to update the limit
+ */
+public final class PinAdaptiveLimiter {
+
+    static final int WINDOW_SAMPLES = 50;
+    /**
+     * latency can grow this much before the limit shrinks
+     */
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    /**
+     * weight of every window in the long term round trip time
+     */
+    private static final double LONG_RTT_WEIGHT = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    private final LongAdder windowSumNanos = new LongAdder();
+    private final LongAccumulator windowMaxInFlight = new LongAccumulator(Math::max, 0);
+    private final AtomicInteger windowCount = new AtomicInteger();
+
+    /**
+     * Guarded by this, only touched once per window
+     */
+    private double estimatedLimit;
+    private double longRttNanos = 0;
+
+    /**
+     * @param initialLimit concurrent requests allowed before the first measures
+     * @param minLimit     the limit never goes below
+     * @param maxLimit     the limit never goes above
+     */
+    PinAdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return true if the request can go on, and then release must be called when it ends
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos time since the request arrived
+     */
+    void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        windowSumNanos.add(rttNanos);
+        windowMaxInFlight.accumulate(inFlightBefore);
+        //every count is seen by one release only, the one reaching a full window closes it
+        if (windowCount.incrementAndGet() % WINDOW_SAMPLES == 0) {
+            closeWindow();
+        }
+    }
+
+    /**
+     * Races move a few samples to a neighbour window at most
+     */
+    private synchronized void closeWindow() {
+        windowCount.addAndGet(-WINDOW_SAMPLES);
+        updateLimit((double) windowSumNanos.sumThenReset() / WINDOW_SAMPLES, windowMaxInFlight.getThenReset());
+    }
+
+    /**
+     * A request that got a permit but never ran, it says nothing about latency
+     */
+    void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    private void updateLimit(double shortRttNanos, long maxInFlight) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRttNanos;
+        } else {
+            longRttNanos = longRttNanos * (1 - LONG_RTT_WEIGHT) + shortRttNanos * LONG_RTT_WEIGHT;
+        }
+        //latency went down a lot, do not wait for the long term average to notice
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        //the route was not even using half of the limit, latency says nothing about a bigger one
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * @return concurrent requests allowed right now
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return requests turned away because the limit was reached
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "limit=" + limit + " inFlight=" + getInFlight() + " rejected=" + getRejected();
+    }
+}
@@ -0,0 +1,14 @@
+package com.pinframework;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handler that does not hold its thread while it waits.<br>
+ * The response is rendered and the exchange closed when the future completes, in the thread that completes it.
+ * A future completed exceptionally is answered like a thrown exception: 400 for PinBadRequestException, 500
+ * otherwise
+ */
+@FunctionalInterface
+public interface PinAsyncHandler {
+    CompletableFuture<PinResponse> handle(PinExchange pinExchange) throws Exception;
+}
@@ -0,0 +1,95 @@
+package com.pinframework;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Bytes of request bodies a server, or a route, lets in at the same time.<br>
+ * Handlers usually keep the whole body in memory, parsing json or multipart, so many big uploads at once can fill
+ * the heap. Every request with a body reserves its Content-Length before it is queued, and gives it back when it is
+ * answered. If the budget is exhausted the request gets a quick 503, and a body bigger than maxBodyBytes gets a 413,
+ * before a single byte of it is read.<br>
+ * Chunked bodies have no Content-Length, they reserve maxBodyBytes and are cut there.<br>
+ * A route budget has the server budget as parent, and a request must fit in both
+ */
+final class PinBodyBudget {
+
+    private final long budgetBytes;
+    private final long maxBodyBytes;
+    private final PinBodyBudget parent;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param budgetBytes  bytes reserved at the same time
+     * @param maxBodyBytes biggest body of a single request, not more than budgetBytes
+     * @param parent       budget to reserve from too, null for none
+     */
+    PinBodyBudget(long budgetBytes, long maxBodyBytes, PinBodyBudget parent) {
+        this.budgetBytes = budgetBytes;
+        this.maxBodyBytes = parent == null ? maxBodyBytes : Math.min(maxBodyBytes, parent.getMaxBodyBytes());
+        this.parent = parent;
+    }
+
+    /**
+     * @return Content-Length, 0 if the request has no body, -1 if it is chunked or its length is not valid
+     */
+    static long declaredBodyBytes(HttpExchange httpExchange) {
+        String contentLength = httpExchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                long bytes = Long.parseLong(contentLength.trim());
+                return bytes < 0 ? -1 : bytes;
+            } catch (NumberFormatException nfe) {
+                return -1;
+            }
+        }
+        return httpExchange.getRequestHeaders().containsKey("Transfer-Encoding") ? -1 : 0;
+    }
+
+    /**
+     * @return false if bytes do not fit, here or in the parent, then nothing is reserved
+     */
+    boolean tryReserve(long bytes) {
+        while (true) {
+            long current = reservedBytes.get();
+            if (current + bytes > budgetBytes) {
+                rejected.increment();
+                return false;
+            }
+            if (reservedBytes.compareAndSet(current, current + bytes)) {
+                break;
+            }
+        }
+        if (parent != null && !parent.tryReserve(bytes)) {
+            reservedBytes.addAndGet(-bytes);
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    void release(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+        if (parent != null) {
+            parent.release(bytes);
+        }
+    }
+
+    long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * @return requests turned away with 503 because the budget was exhausted
+     */
+    long getRejected() {
+        return rejected.sum();
+    }
+}
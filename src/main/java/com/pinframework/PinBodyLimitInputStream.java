@@ -0,0 +1,67 @@
+package com.pinframework;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pinframework.exceptions.PinPayloadTooLargeException;
+
+/**
+ * Request body of a request admitted by a PinBodyBudget. It holds the reservation until the request is answered,
+ * and fails with PinPayloadTooLargeException if the body goes over it, which only chunked bodies can do
+ */
+final class PinBodyLimitInputStream extends FilterInputStream {
+
+    private final long reservedBytes;
+    private final PinBodyBudget bodyBudget;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+    private long readBytes = 0;
+
+    PinBodyLimitInputStream(InputStream in, long reservedBytes, PinBodyBudget bodyBudget) {
+        super(in);
+        this.reservedBytes = reservedBytes;
+        this.bodyBudget = bodyBudget;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = super.read();
+        if (read >= 0) {
+            count(1);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    private void count(long bytes) {
+        readBytes += bytes;
+        if (readBytes > reservedBytes) {
+            throw new PinPayloadTooLargeException("Request body is bigger than " + reservedBytes + " bytes");
+        }
+    }
+
+    /**
+     * Gives the reservation back, only the first call counts
+     */
+    void release() {
+        if (released.compareAndSet(false, true)) {
+            bodyBudget.release(reservedBytes);
+        }
+    }
+}
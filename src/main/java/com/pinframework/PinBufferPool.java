@@ -0,0 +1,111 @@
+package com.pinframework;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte buffers reused by renders, static files, body reading and response buffering, so responses do not
+ * allocate their working buffers.<br>
+ * The pool is split in stripes chosen by thread id, each one a small stack with its own lock, so threads rarely
+ * meet. Each stripe keeps a few buffers at most, if it is empty a new buffer is allocated (a miss) and if it is
+ * full a released buffer is left to the GC. Memory held is bounded, and works the same with virtual threads,
+ * unlike thread locals
+ */
+public final class PinBufferPool {
+
+    /**
+     * Size of every buffer
+     */
+    public static final int BUFFER_SIZE = 8192;
+    private static final int BUFFERS_PER_STRIPE = 8;
+
+    private static final PinBufferPool SHARED = new PinBufferPool(
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), BUFFERS_PER_STRIPE);
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param stripeCount       a power of two
+     * @param buffersPerStripe buffers kept by each stripe
+     */
+    PinBufferPool(int stripeCount, int buffersPerStripe) {
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(buffersPerStripe);
+        }
+        this.mask = stripeCount - 1;
+    }
+
+    /**
+     * @return the pool every Pin server uses
+     */
+    public static PinBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return a buffer of BUFFER_SIZE bytes, with garbage in it. Give it back with release when done
+     */
+    public byte[] acquire() {
+        byte[] buffer = stripe().pop();
+        if (buffer == null) {
+            misses.increment();
+            return new byte[BUFFER_SIZE];
+        }
+        hits.increment();
+        return buffer;
+    }
+
+    /**
+     * @param buffer one returned by acquire, it must not be used anymore. Buffers of other sizes are ignored
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null && buffer.length == BUFFER_SIZE) {
+            stripe().push(buffer);
+        }
+    }
+
+    private Stripe stripe() {
+        return stripes[(int) Thread.currentThread().getId() & mask];
+    }
+
+    /**
+     * @return buffers taken from the pool
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return buffers allocated because the pool was empty
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static final class Stripe {
+        private final byte[][] buffers;
+        private int size = 0;
+
+        private Stripe(int capacity) {
+            this.buffers = new byte[capacity][];
+        }
+
+        private synchronized byte[] pop() {
+            if (size == 0) {
+                return null;
+            }
+            byte[] buffer = buffers[--size];
+            buffers[size] = null;
+            return buffer;
+        }
+
+        private synchronized void push(byte[] buffer) {
+            if (size < buffers.length) {
+                buffers[size++] = buffer;
+            }
+        }
+    }
+}
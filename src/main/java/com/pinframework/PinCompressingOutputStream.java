@@ -0,0 +1,179 @@
+package com.pinframework;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Response body that holds what is written up to minBytes, and sends it as it is if it never gets bigger.
+ * Once it does, Content-Encoding is set and everything goes through a pooled Deflater into a PinResponseBuffer,
+ * so small compressed bodies still go with Content-Length.<br>
+ * Flush is ignored, a sync flush would make the output bigger and renders flush before closing anyway
+ */
+final class PinCompressingOutputStream extends OutputStream {
+
+    private static final int INITIAL_SIZE = 512;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final HttpExchange httpExchange;
+    private final int status;
+    private final int minBytes;
+    private final int responseBufferBytes;
+    private final PinCompression compression;
+    private final String encoding;
+    private final boolean gzip;
+    private final byte[] oneByte = new byte[1];
+
+    private byte[] held;
+    private int count = 0;
+    /**
+     * null while holding
+     */
+    private PinResponseBuffer sink = null;
+    private Deflater deflater;
+    private byte[] deflated;
+    private CRC32 crc;
+    private long inputBytes = 0;
+    private long outputBytes = 0;
+    private long deflateNanos = 0;
+    private boolean closed = false;
+
+    /**
+     * @param httpExchange headers must not be sent yet
+     * @param encoding     gzip or deflate
+     */
+    PinCompressingOutputStream(HttpExchange httpExchange, int status, int minBytes, int responseBufferBytes,
+            PinCompression compression, String encoding) {
+        this.httpExchange = httpExchange;
+        this.status = status;
+        this.minBytes = minBytes;
+        this.responseBufferBytes = responseBufferBytes;
+        this.compression = compression;
+        this.encoding = encoding;
+        this.gzip = PinContentEncoding.GZIP.equals(encoding);
+        this.held = minBytes <= PinBufferPool.BUFFER_SIZE ? PinBufferPool.shared().acquire()
+                : new byte[INITIAL_SIZE];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        oneByte[0] = (byte) b;
+        write(oneByte, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (sink == null) {
+            if (count + len <= minBytes) {
+                if (count + len > held.length) {
+                    held = Arrays.copyOf(held, Math.min(minBytes, Math.max(count + len, held.length * 2)));
+                }
+                System.arraycopy(b, off, held, count, len);
+                count += len;
+                return;
+            }
+            startCompressing();
+        }
+        deflate(b, off, len);
+    }
+
+    private void startCompressing() throws IOException {
+        httpExchange.getResponseHeaders().set(PinContentEncoding.CONTENT_ENCODING, encoding);
+        sink = new PinResponseBuffer(httpExchange, status, responseBufferBytes);
+        deflater = compression.acquire(gzip);
+        deflated = PinBufferPool.shared().acquire();
+        if (gzip) {
+            crc = new CRC32();
+            sink.write(GZIP_HEADER);
+            outputBytes += GZIP_HEADER.length;
+        }
+        if (count > 0) {
+            deflate(held, 0, count);
+        }
+        PinBufferPool.shared().release(held);
+        held = null;
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        inputBytes += len;
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+    }
+
+    /**
+     * Moves whatever the deflater has to the sink
+     */
+    private void drain() throws IOException {
+        long startNanos = System.nanoTime();
+        int deflatedBytes = deflater.deflate(deflated, 0, deflated.length);
+        deflateNanos += System.nanoTime() - startNanos;
+        if (deflatedBytes > 0) {
+            sink.write(deflated, 0, deflatedBytes);
+            outputBytes += deflatedBytes;
+        }
+    }
+
+    @Override
+    public void flush() {
+        //see class comment
+    }
+
+    /**
+     * Sends what was held as it is, or finishes the compressed body. Only the first call counts
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (sink == null) {
+            httpExchange.sendResponseHeaders(status, count == 0 ? -1 : count);
+            OutputStream out = httpExchange.getResponseBody();
+            if (count > 0) {
+                out.write(held, 0, count);
+            }
+            PinBufferPool.shared().release(held);
+            held = null;
+            out.close();
+            return;
+        }
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain();
+            }
+            if (gzip) {
+                byte[] trailer = new byte[8];
+                writeIntLittleEndian(trailer, 0, (int) crc.getValue());
+                writeIntLittleEndian(trailer, 4, (int) inputBytes);
+                sink.write(trailer);
+                outputBytes += trailer.length;
+            }
+            //before the last bytes go, so whoever gets the response sees it counted
+            compression.record(inputBytes, outputBytes, deflateNanos);
+            sink.close();
+        } finally {
+            compression.release(deflater, gzip);
+            PinBufferPool.shared().release(deflated);
+            deflater = null;
+            deflated = null;
+        }
+    }
+
+    private static void writeIntLittleEndian(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+        bytes[offset + 2] = (byte) (value >> 16);
+        bytes[offset + 3] = (byte) (value >> 24);
+    }
+}
@@ -0,0 +1,150 @@
+package com.pinframework;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Compresses rendered responses on the fly, gzip or deflate, whichever the client prefers.<br>
+ * Only compressible content types of routes with compression enabled, and only bodies bigger than minBytes: they
+ * are held until they pass it, so small responses are sent as they are, with no CPU spent. Deflaters hold native
+ * memory and are expensive to create, so a few of each kind are kept and reused.<br>
+ * One per server, with the counters every compressed response adds to
+ */
+final class PinCompression {
+
+    static final int DEFAULT_MIN_BYTES = 1024;
+    /**
+     * deflaters kept of each kind, more are created when needed and ended when returned
+     */
+    private static final int DEFLATERS_KEPT = 16;
+
+    private final int minBytes;
+    private final boolean enabledByDefault;
+    /**
+     * Guarded by themselves. gzip writes its own header and trailer, so its deflaters are nowrap
+     */
+    private final ArrayDeque<Deflater> gzipDeflaters = new ArrayDeque<>();
+    private final ArrayDeque<Deflater> zlibDeflaters = new ArrayDeque<>();
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder outputBytes = new LongAdder();
+    private final LongAdder deflateNanos = new LongAdder();
+
+    /**
+     * @param minBytes         bodies up to this size are not compressed
+     * @param enabledByDefault for routes that do not set it with PinRouteOptions.compression
+     */
+    PinCompression(int minBytes, boolean enabledByDefault) {
+        this.minBytes = minBytes;
+        this.enabledByDefault = enabledByDefault;
+    }
+
+    boolean isEnabledByDefault() {
+        return enabledByDefault;
+    }
+
+    /**
+     * Headers must be set already, the render changed them
+     *
+     * @return a stream that sends the response compressed if it gets big enough, or null if it must be sent as it
+     *         is: the client accepts no coding we have, the content type is not compressible, there is no body, or
+     *         the body is already encoded
+     */
+    OutputStream open(HttpExchange httpExchange, int status, int responseBufferBytes) {
+        if (status < HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NO_CONTENT
+                || status == HttpURLConnection.HTTP_NOT_MODIFIED || "HEAD".equals(httpExchange.getRequestMethod())) {
+            return null;
+        }
+        Headers responseHeaders = httpExchange.getResponseHeaders();
+        if (responseHeaders.containsKey(PinContentEncoding.CONTENT_ENCODING)
+                || !PinContentEncoding.isCompressible(responseHeaders.getFirst(PinContentType.CONTENT_TYPE))) {
+            return null;
+        }
+        //the body depends on Accept-Encoding, even for clients that get it as it is
+        List<String> vary = responseHeaders.get(PinContentEncoding.VARY);
+        if (vary == null || !vary.contains(PinContentEncoding.ACCEPT_ENCODING)) {
+            responseHeaders.add(PinContentEncoding.VARY, PinContentEncoding.ACCEPT_ENCODING);
+        }
+        String encoding = PinContentEncoding.negotiate(
+                httpExchange.getRequestHeaders().getFirst(PinContentEncoding.ACCEPT_ENCODING),
+                PinContentEncoding.GZIP, PinContentEncoding.DEFLATE);
+        if (encoding == null) {
+            return null;
+        }
+        return new PinCompressingOutputStream(httpExchange, status, minBytes, responseBufferBytes, this, encoding);
+    }
+
+    /**
+     * @param gzip true for raw deflate, to be wrapped in gzip, false for zlib, what http calls deflate
+     */
+    Deflater acquire(boolean gzip) {
+        ArrayDeque<Deflater> deflaters = gzip ? gzipDeflaters : zlibDeflaters;
+        Deflater deflater;
+        synchronized (deflaters) {
+            deflater = deflaters.pollFirst();
+        }
+        return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+    }
+
+    /**
+     * @param deflater one returned by acquire(gzip), it must not be used anymore
+     */
+    void release(Deflater deflater, boolean gzip) {
+        deflater.reset();
+        ArrayDeque<Deflater> deflaters = gzip ? gzipDeflaters : zlibDeflaters;
+        synchronized (deflaters) {
+            if (deflaters.size() < DEFLATERS_KEPT) {
+                deflaters.addFirst(deflater);
+                return;
+            }
+        }
+        deflater.end();
+    }
+
+    /**
+     * @param input        body bytes rendered
+     * @param output       bytes sent
+     * @param elapsedNanos time spent deflating
+     */
+    void record(long input, long output, long elapsedNanos) {
+        responses.increment();
+        inputBytes.add(input);
+        outputBytes.add(output);
+        deflateNanos.add(elapsedNanos);
+    }
+
+    /**
+     * @return responses sent compressed
+     */
+    long getResponses() {
+        return responses.sum();
+    }
+
+    /**
+     * @return bytes of compressed responses before compressing
+     */
+    long getInputBytes() {
+        return inputBytes.sum();
+    }
+
+    /**
+     * @return bytes of compressed responses sent, getOutputBytes() / getInputBytes() is the ratio
+     */
+    long getOutputBytes() {
+        return outputBytes.sum();
+    }
+
+    /**
+     * @return time spent in deflaters, all of it CPU
+     */
+    long getDeflateNanos() {
+        return deflateNanos.sum();
+    }
+}
@@ -0,0 +1,101 @@
+package com.pinframework;
+
+import java.util.Locale;
+
+/**
+ * Content codings Pin can send, and how to pick one from an Accept-Encoding header
+ */
+final class PinContentEncoding {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final String CONTENT_ENCODING = "Content-Encoding";
+    static final String VARY = "Vary";
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private PinContentEncoding() {
+        // shup up sonar!
+    }
+
+    /**
+     * The coding with the highest q the client accepts, ties go to the first one in supported. * counts for codings
+     * not named, q=0 means not acceptable
+     *
+     * @param acceptEncoding the header, null if the request had none
+     * @param supported      codings the server can send, most preferred first
+     * @return one of supported, or null if the client accepts none of them
+     */
+    static String negotiate(String acceptEncoding, String... supported) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double[] qualities = new double[supported.length];
+        boolean[] named = new boolean[supported.length];
+        double wildcard = -1;
+        int start = 0;
+        while (start < acceptEncoding.length()) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = acceptEncoding.length();
+            }
+            String part = acceptEncoding.substring(start, end);
+            start = end + 1;
+            int semicolon = part.indexOf(';');
+            String coding = (semicolon < 0 ? part : part.substring(0, semicolon)).trim();
+            double quality = semicolon < 0 ? 1 : quality(part.substring(semicolon + 1));
+            if ("*".equals(coding)) {
+                wildcard = quality;
+                continue;
+            }
+            for (int i = 0; i < supported.length; i++) {
+                if (supported[i].equalsIgnoreCase(coding)) {
+                    qualities[i] = quality;
+                    named[i] = true;
+                }
+            }
+        }
+        String best = null;
+        double bestQuality = 0;
+        for (int i = 0; i < supported.length; i++) {
+            double quality = named[i] ? qualities[i] : Math.max(0, wildcard);
+            if (quality > bestQuality) {
+                best = supported[i];
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param parameters what comes after the ;, like q=0.5
+     * @return the q value, 1 if there is none and 0 if it is not valid
+     */
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Images, video, fonts like woff2 and archives are compressed already, compressing them again only costs CPU
+     *
+     * @param contentType a mime type, parameters like charset are fine
+     * @return true if it is text like, and worth compressing
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("javascript") || type.contains("json")
+                || type.contains("xml") || type.contains("svg");
+    }
+}
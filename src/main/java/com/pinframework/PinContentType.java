@@ -24,6 +24,11 @@ public final class PinContentType {
      */
     public static final String TEXT_HTML_UTF8 = "text/html; charset=utf-8";
 
+    /**
+     * text/plain; version=0.0.4; charset=utf-8, Prometheus text exposition format
+     */
+    public static final String TEXT_PLAIN_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+
     /**
      * application/force-download
      */
@@ -0,0 +1,33 @@
+package com.pinframework;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes going through it. Not thread safe, as the response body of an exchange is not
+ */
+final class PinCountingOutputStream extends FilterOutputStream {
+
+    private long count = 0;
+
+    PinCountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+    }
+
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,48 @@
+package com.pinframework;
+
+/**
+ * What happened while a PinServer drained before stopping
+ */
+public final class PinDrainReport {
+
+    private final int requestsCutOff;
+    private final int openStreamsClosed;
+    private final long elapsedMillis;
+
+    PinDrainReport(int requestsCutOff, int openStreamsClosed, long elapsedMillis) {
+        this.requestsCutOff = requestsCutOff;
+        this.openStreamsClosed = openStreamsClosed;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return requests still running when the time was over, their connections were closed
+     */
+    public int getRequestsCutOff() {
+        return requestsCutOff;
+    }
+
+    /**
+     * @return streams like SSE that were still open, they were closed cleanly before waiting for requests
+     */
+    public int getOpenStreamsClosed() {
+        return openStreamsClosed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return true if every request finished in time
+     */
+    public boolean isClean() {
+        return requestsCutOff == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "requestsCutOff=" + requestsCutOff + " openStreamsClosed=" + openStreamsClosed + " elapsedMillis="
+                + elapsedMillis;
+    }
+}
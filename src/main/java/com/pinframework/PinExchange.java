@@ -1,6 +1,7 @@
 package com.pinframework;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
@@ -17,6 +18,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -37,6 +39,7 @@ import com.pinframework.converter.PinLongParamConverter;
 import com.pinframework.converter.PinParamConverter;
 import com.pinframework.converter.PinZonedDateTimeParamConverter;
 import com.pinframework.exceptions.PinBadRequestException;
+import com.pinframework.exceptions.PinPayloadTooLargeException;
 import com.pinframework.exceptions.PinRuntimeException;
 import com.sun.net.httpserver.HttpExchange;
 
@@ -52,6 +55,9 @@ public class PinExchange {
     private Map<String, List<FileItem>> fileParams;
     private boolean streamParsed = false;
     private final Gson gson;
+    private boolean hasDeadline = false;
+    private long deadlineNanos;
+    private PinInFlightTracker inFlightTracker;
 
     private final PinLongParamConverter longParamConverter = new PinLongParamConverter();
     private final PinLocalDateParamConverter localDateParamConverter = new PinLocalDateParamConverter();
@@ -61,7 +67,7 @@ public class PinExchange {
     public PinExchange(HttpExchange httpExchange, Gson gson, Map<String, String> pathParams) {
         this.httpExchange = httpExchange;
         this.gson = gson;
-        this.pathParams = Collections.unmodifiableMap(pathParams);
+        this.pathParams = pathParams instanceof PinPathParams ? pathParams : Collections.unmodifiableMap(pathParams);
     }
 
     public HttpExchange raw() {
@@ -72,6 +78,56 @@ public class PinExchange {
         return pathParams;
     }
 
+    void setInFlightTracker(PinInFlightTracker inFlightTracker) {
+        this.inFlightTracker = inFlightTracker;
+    }
+
+    /**
+     * A response that keeps writing after the handler returns, like SSE, registers here so it is closed when the
+     * server drains. Unregister it when it ends by itself
+     *
+     * @param stream closed when the server drains
+     */
+    public void registerOpenStream(Closeable stream) {
+        if (inFlightTracker != null) {
+            inFlightTracker.registerOpenStream(stream);
+        }
+    }
+
+    public void unregisterOpenStream(Closeable stream) {
+        if (inFlightTracker != null) {
+            inFlightTracker.unregisterOpenStream(stream);
+        }
+    }
+
+    /**
+     * @param deadlineNanos System.nanoTime() value when the route must have answered
+     */
+    void setDeadlineNanos(long deadlineNanos) {
+        this.hasDeadline = true;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Pass it down to slow calls, so they give up when the response would be useless anyway
+     *
+     * @return milliseconds left before the route deadline, 0 if it is already over, Long.MAX_VALUE if the route has
+     * no deadline
+     */
+    public long getRemainingMillis() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * @return true if the route deadline is over, the client already got a 504 or is about to
+     */
+    public boolean isExpired() {
+        return hasDeadline && deadlineNanos - System.nanoTime() <= 0;
+    }
+
     public Map<String, List<String>> getQueryParams() {
         if (queryParams == null) {
             queryParams = Collections
@@ -189,6 +245,8 @@ public class PinExchange {
                 postParams = Collections.emptyMap();
             } catch (FileUploadException fue) {
                 throw new PinBadRequestException(fue.getMessage(), fue);
+            } catch (PinPayloadTooLargeException ptle) {
+                throw ptle;
             } catch (Exception ex) {
                 throw new PinBadRequestException("Unexpected exception parsing multipart body", ex);
             }
@@ -319,6 +377,9 @@ public class PinExchange {
     }
 
     public Long getPathParamAsLong(String paramName) {
+        if (pathParams instanceof PinPathParams) {
+            return ((PinPathParams) pathParams).getAsLong(paramName);
+        }
         return getPathParamConverted(paramName, longParamConverter);
     }
 
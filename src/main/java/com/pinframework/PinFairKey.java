@@ -0,0 +1,46 @@
+package com.pinframework;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Tells which client, or tenant, a request belongs to, so fair queuing can give every key its own share of the
+ * worker threads.<br>
+ * It runs in an I/O thread for every request, before the handler is queued, so it must be cheap and
+ * must not read the body
+ */
+@FunctionalInterface
+public interface PinFairKey {
+
+    /**
+     * @param pinExchange the request, path params already parsed
+     * @return the key, null goes to the same queue as every other request without key
+     */
+    String keyOf(PinExchange pinExchange);
+
+    /**
+     * @param headerName like "X-Tenant-Id"
+     * @return the first value of the header
+     */
+    static PinFairKey byHeader(String headerName) {
+        return pinExchange -> pinExchange.raw().getRequestHeaders().getFirst(headerName);
+    }
+
+    /**
+     * @param paramName a path param, like "tenant" in "/:tenant/orders"
+     * @return the path param value, routes without that param share a queue
+     */
+    static PinFairKey byPathParam(String paramName) {
+        return pinExchange -> pinExchange.getPathParam(paramName);
+    }
+
+    /**
+     * @return the client address, without port. Behind a proxy every request has the proxy address, use a header
+     */
+    static PinFairKey byClientIp() {
+        return pinExchange -> {
+            InetSocketAddress remoteAddress = pinExchange.raw().getRemoteAddress();
+            return remoteAddress == null || remoteAddress.getAddress() == null ? null
+                    : remoteAddress.getAddress().getHostAddress();
+        };
+    }
+}
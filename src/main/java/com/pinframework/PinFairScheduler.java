@@ -0,0 +1,175 @@
+package com.pinframework;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sits in front of a worker pool executor and decides which request gets the next free thread.<br>
+ * Every key has its own bounded queue, and queues are served with deficit round robin: on its turn a key runs as
+ * many requests as its weight, then the next key goes. A key is credited its weight when it joins the round, so a
+ * new key gets its first turn right after the keys ahead of it. A client sending a burst only fills its own queue, and
+ * everybody else keeps waiting behind at most one round.<br>
+ * The executor never gets more tasks than threads, so its own queue stays empty and all the waiting happens here.
+ * Empty queues are dropped, so keys like client addresses do not pile up
+ */
+final class PinFairScheduler {
+
+    private final Executor executor;
+    private final int threads;
+    private final int perKeyQueueCapacity;
+    private final Map<String, Integer> weightsByKey;
+    private final PinFairKey fairKey;
+
+    /**
+     * Guarded by this
+     */
+    private final Map<String, KeyQueue> queuesByKey = new HashMap<>();
+    private final ArrayDeque<KeyQueue> activeQueues = new ArrayDeque<>();
+    private int running = 0;
+    private int queued = 0;
+
+    /**
+     * @param executor            where tasks run, it must accept threads tasks at the same time
+     * @param threads             tasks given to executor at the same time
+     * @param perKeyQueueCapacity tasks waiting for each key, the next one is rejected
+     * @param weightsByKey        tasks per turn of each key, keys not here get 1
+     * @param fairKey             classifies requests
+     */
+    PinFairScheduler(Executor executor, int threads, int perKeyQueueCapacity, Map<String, Integer> weightsByKey,
+            PinFairKey fairKey) {
+        this.executor = executor;
+        this.threads = threads;
+        this.perKeyQueueCapacity = perKeyQueueCapacity;
+        this.weightsByKey = weightsByKey;
+        this.fairKey = fairKey;
+    }
+
+    /**
+     * @param pinExchange the request, null for requests without route, they share the queue of requests without key
+     * @return its key, never null
+     */
+    String keyOf(PinExchange pinExchange) {
+        if (pinExchange == null) {
+            return "";
+        }
+        String key;
+        try {
+            key = fairKey.keyOf(pinExchange);
+        } catch (RuntimeException ex) {
+            //a broken key function must not break every request
+            key = null;
+        }
+        return key == null ? "" : key;
+    }
+
+    /**
+     * @return false if the queue of key is full and task was not accepted
+     */
+    boolean submit(String key, Runnable task) {
+        synchronized (this) {
+            KeyQueue keyQueue = queuesByKey.get(key);
+            if (keyQueue == null) {
+                keyQueue = new KeyQueue(key, weightsByKey.getOrDefault(key, 1));
+                queuesByKey.put(key, keyQueue);
+            }
+            if (keyQueue.tasks.size() >= perKeyQueueCapacity) {
+                return false;
+            }
+            if (keyQueue.tasks.isEmpty()) {
+                keyQueue.deficit = keyQueue.weight;
+                activeQueues.addLast(keyQueue);
+            }
+            keyQueue.tasks.addLast(task);
+            queued++;
+        }
+        runNext();
+        return true;
+    }
+
+    /**
+     * Gives tasks to the executor while it has free threads
+     */
+    private void runNext() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                if (running >= threads || queued == 0) {
+                    return;
+                }
+                task = next();
+                running++;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        synchronized (this) {
+                            running--;
+                        }
+                        runNext();
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                //only after the executor was shut down, nobody else is going to run it
+                synchronized (this) {
+                    running--;
+                }
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Deficit round robin, every task costs 1. Guarded by this, queued must be more than 0
+     */
+    private Runnable next() {
+        while (true) {
+            KeyQueue keyQueue = activeQueues.peekFirst();
+            if (keyQueue.deficit < 1) {
+                //its turn is over, credit the next one
+                keyQueue.deficit += keyQueue.weight;
+                activeQueues.addLast(activeQueues.pollFirst());
+                continue;
+            }
+            Runnable task = keyQueue.tasks.pollFirst();
+            keyQueue.deficit--;
+            queued--;
+            if (keyQueue.tasks.isEmpty()) {
+                //an idle key does not save turns for later
+                activeQueues.pollFirst();
+                queuesByKey.remove(keyQueue.key);
+            }
+            return task;
+        }
+    }
+
+    /**
+     * @return tasks waiting in every key queue
+     */
+    synchronized int getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return keys with tasks waiting
+     */
+    synchronized int getActiveKeys() {
+        return activeQueues.size();
+    }
+
+    private static final class KeyQueue {
+        private final String key;
+        private final int weight;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private int deficit = 0;
+
+        private KeyQueue(String key, int weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+}
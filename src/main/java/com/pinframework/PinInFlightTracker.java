@@ -0,0 +1,111 @@
+package com.pinframework;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Counts the requests a server is handling and the streams that outlive their handler, like SSE, so the server
+ * can drain before it stops: new requests are turned away, streams are closed and running requests get some time
+ * to finish
+ */
+final class PinInFlightTracker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PinInFlightTracker.class);
+
+    /**
+     * Lock free, the monitor of this tracker is only taken while draining, awaitIdle waits on it
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Set<Closeable> openStreams = ConcurrentHashMap.newKeySet();
+    private volatile boolean draining = false;
+
+    /**
+     * Call it before handling a request, and exit() when done if it returns true
+     *
+     * @param httpExchange answered with 503 if the server is draining
+     * @return false if the server is draining, the exchange is already answered and closed
+     */
+    boolean enter(HttpExchange httpExchange) {
+        //count first, so drain never sees zero while a request is past this check
+        inFlight.incrementAndGet();
+        if (draining) {
+            exit();
+            PinQuickResponse.draining(httpExchange);
+            return false;
+        }
+        return true;
+    }
+
+    void exit() {
+        if (inFlight.decrementAndGet() == 0 && draining) {
+            signalIdle();
+        }
+    }
+
+    private synchronized void signalIdle() {
+        //a request may have entered since, awaitIdle would only wait again
+        if (inFlight.get() == 0) {
+            notifyAll();
+        }
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    boolean isDraining() {
+        return draining;
+    }
+
+    void registerOpenStream(Closeable stream) {
+        openStreams.add(stream);
+    }
+
+    void unregisterOpenStream(Closeable stream) {
+        openStreams.remove(stream);
+    }
+
+    void startDraining() {
+        draining = true;
+    }
+
+    /**
+     * @return how many streams were closed
+     */
+    int closeOpenStreams() {
+        int closed = 0;
+        for (Closeable stream : openStreams) {
+            try {
+                stream.close();
+                closed++;
+            } catch (IOException e) {
+                LOG.debug("Can not close open stream {}", stream, e);
+            }
+        }
+        openStreams.clear();
+        return closed;
+    }
+
+    /**
+     * @param deadlineNanos System.nanoTime() value to give up waiting
+     * @return requests still running when it gave up, 0 if every request finished
+     */
+    synchronized int awaitIdle(long deadlineNanos) throws InterruptedException {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        //exit only notifies once draining is set, so the counter is checked again after every wake up
+        while (inFlight.get() > 0 && remainingNanos > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            remainingNanos = deadlineNanos - System.nanoTime();
+        }
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,139 @@
+package com.pinframework;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram, in the spirit of HdrHistogram.<br>
+ * Values are kept in microseconds. Every power of two is split in 32 linear sub buckets, so any recorded value is
+ * off by less than 1/32 (about 3%). Values up to 2^37 microseconds (more than a day) are kept, longer ones are counted
+ * in the last bucket<br>
+ * Buckets are LongAdders created the first time they are hit, so recording never blocks nor contends, and memory
+ * is only used for the latencies that actually happen
+ */
+public final class PinLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos elapsed time in nanoseconds, negative values are taken as zero
+     */
+    public void record(long nanos) {
+        long safeNanos = Math.max(0, nanos);
+        int index = bucketIndex(TimeUnit.NANOSECONDS.toMicros(safeNanos));
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, new LongAdder());
+            bucket = buckets.get(index);
+        }
+        bucket.increment();
+        count.increment();
+        sumNanos.add(safeNanos);
+        maxNanos.accumulate(safeNanos);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @param index bucket index
+     * @return highest value, in microseconds, that falls in that bucket
+     */
+    static long bucketUpperBoundMicros(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @param index bucket index
+     * @return how many values were recorded in that bucket
+     */
+    long getBucketCount(int index) {
+        LongAdder bucket = buckets.get(index);
+        return bucket == null ? 0 : bucket.sum();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0 : sumNanos.sum() / currentCount;
+    }
+
+    /**
+     * Buckets are read one by one while other threads may keep recording, so under load the result is a close
+     * approximation, never a blocking snapshot
+     *
+     * @param percentile between 0 and 100, for example 99.9
+     * @return the upper bound of the bucket holding said percentile, in nanoseconds. Zero if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = getBucketCount(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            accumulated += counts[i];
+            if (accumulated >= target) {
+                return Math.min(TimeUnit.MICROSECONDS.toNanos(bucketUpperBoundMicros(i)), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Counts are reset one by one, so values recorded at the same time may be kept or lost
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                bucket.reset();
+            }
+        }
+        count.reset();
+        sumNanos.reset();
+        maxNanos.reset();
+    }
+}
@@ -0,0 +1,123 @@
+package com.pinframework;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.pinframework.converter.PinLongParamConverter;
+import com.pinframework.converter.PinParamConverter;
+import com.pinframework.exceptions.PinBadRequestException;
+
+/**
+ * Read only view of the path params of a request.<br>
+ * Values are kept as start and end positions in the request path, a String is only created when a value is asked for
+ */
+public final class PinPathParams extends AbstractMap<String, String> {
+
+    /**
+     * only for invalid values, so the error is the same one the other params give
+     */
+    private static final PinParamConverter<Long> LONG_CONVERTER = new PinLongParamConverter();
+
+    private final String path;
+    private final String[] names;
+    private final int[] ranges;
+
+    /**
+     * @param path   the request path
+     * @param names  path param names, in order of appearance
+     * @param ranges for every name, start (inclusive) and end (exclusive) of its value in path
+     */
+    PinPathParams(String path, String[] names, int[] ranges) {
+        this.path = path;
+        this.names = names;
+        this.ranges = ranges;
+    }
+
+    private int indexOf(Object name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String valueAt(int index) {
+        return path.substring(ranges[index * 2], ranges[index * 2 + 1]);
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index == -1 ? null : valueAt(index);
+    }
+
+    /**
+     * Parses the value in place, no String is created unless it is invalid
+     *
+     * @param name path param name
+     * @return null if there is no such param or it is empty, the value otherwise
+     * @throws PinBadRequestException if the value is not a valid long
+     */
+    public Long getAsLong(String name) {
+        int index = indexOf(name);
+        if (index == -1) {
+            return null;
+        }
+        int start = ranges[index * 2];
+        int end = ranges[index * 2 + 1];
+        if (start == end) {
+            return null;
+        }
+        try {
+            return Long.parseLong(path, start, end, 10);
+        } catch (NumberFormatException nfe) {
+            return LONG_CONVERTER.convert(name, valueAt(index));
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < names.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (index >= names.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, String> entry = new SimpleImmutableEntry<>(names[index], valueAt(index));
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,274 @@
+package com.pinframework;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the stats of a PinServer in Prometheus text exposition format.<br>
+ * Registered by PinServerBuilder when metricsPath is set, the object to render is the PinServer itself
+ */
+final class PinPrometheusRender implements PinRender {
+
+    static final String TYPE = "PROMETHEUS";
+
+    private static final byte[] REQUESTS = PinPrometheusWriter.encode("pin_requests_total");
+    private static final byte[] REQUESTS_HEADER = PinPrometheusWriter.header("pin_requests_total", "counter",
+            "Requests handled by route");
+    private static final byte[] RESPONSES = PinPrometheusWriter.encode("pin_responses_total");
+    private static final byte[] RESPONSES_HEADER = PinPrometheusWriter.header("pin_responses_total", "counter",
+            "Responses by route and status class");
+    private static final byte[][] STATUS_CLASS_LABELS = {
+            PinPrometheusWriter.encode(",code=\"1xx\""),
+            PinPrometheusWriter.encode(",code=\"2xx\""),
+            PinPrometheusWriter.encode(",code=\"3xx\""),
+            PinPrometheusWriter.encode(",code=\"4xx\""),
+            PinPrometheusWriter.encode(",code=\"5xx\"")
+    };
+    private static final byte[] BYTES_OUT = PinPrometheusWriter.encode("pin_response_bytes_total");
+    private static final byte[] BYTES_OUT_HEADER = PinPrometheusWriter.header("pin_response_bytes_total", "counter",
+            "Response body bytes by route");
+    private static final byte[] DURATION_BUCKET = PinPrometheusWriter.encode("pin_request_duration_seconds_bucket");
+    private static final byte[] DURATION_SUM = PinPrometheusWriter.encode("pin_request_duration_seconds_sum");
+    private static final byte[] DURATION_COUNT = PinPrometheusWriter.encode("pin_request_duration_seconds_count");
+    private static final byte[] DURATION_HEADER = PinPrometheusWriter.header("pin_request_duration_seconds", "histogram",
+            "Time from request arrival to response closed, by route");
+    private static final byte[] ROUTES = PinPrometheusWriter.encode("pin_routes");
+    private static final byte[] ROUTES_HEADER = PinPrometheusWriter.header("pin_routes", "gauge", "Registered routes");
+    private static final byte[] POOL_QUEUE = PinPrometheusWriter.encode("pin_worker_pool_queue_size");
+    private static final byte[] POOL_QUEUE_HEADER = PinPrometheusWriter.header("pin_worker_pool_queue_size", "gauge",
+            "Requests waiting for a thread, by worker pool");
+    private static final byte[] POOL_DISPATCHED = PinPrometheusWriter.encode("pin_worker_pool_dispatched_total");
+    private static final byte[] POOL_DISPATCHED_HEADER = PinPrometheusWriter.header("pin_worker_pool_dispatched_total",
+            "counter", "Requests handed to the worker pool");
+    private static final byte[] POOL_SHED = PinPrometheusWriter.encode("pin_worker_pool_shed_total");
+    private static final byte[] POOL_SHED_HEADER = PinPrometheusWriter.header("pin_worker_pool_shed_total", "counter",
+            "Requests rejected because the worker pool queue was full");
+    private static final byte[] POOL_ACTIVE = PinPrometheusWriter.encode("pin_worker_pool_active_threads");
+    private static final byte[] POOL_ACTIVE_HEADER = PinPrometheusWriter.header("pin_worker_pool_active_threads",
+            "gauge", "Threads running a request, by worker pool");
+    private static final byte[] POOL_WAIT_BUCKET = PinPrometheusWriter.encode("pin_worker_pool_wait_seconds_bucket");
+    private static final byte[] POOL_WAIT_SUM = PinPrometheusWriter.encode("pin_worker_pool_wait_seconds_sum");
+    private static final byte[] POOL_WAIT_COUNT = PinPrometheusWriter.encode("pin_worker_pool_wait_seconds_count");
+    private static final byte[] POOL_WAIT_HEADER = PinPrometheusWriter.header("pin_worker_pool_wait_seconds",
+            "histogram", "Time from queued to started, by worker pool");
+    private static final byte[] BUFFER_POOL_HITS = PinPrometheusWriter.encode("pin_buffer_pool_hits_total");
+    private static final byte[] BUFFER_POOL_HITS_HEADER = PinPrometheusWriter.header("pin_buffer_pool_hits_total",
+            "counter", "Buffers reused from the pool");
+    private static final byte[] BUFFER_POOL_MISSES = PinPrometheusWriter.encode("pin_buffer_pool_misses_total");
+    private static final byte[] BUFFER_POOL_MISSES_HEADER = PinPrometheusWriter.header("pin_buffer_pool_misses_total",
+            "counter", "Buffers allocated because the pool was empty");
+    private static final byte[] STATIC_CACHE_HITS = PinPrometheusWriter.encode("pin_static_cache_hits_total");
+    private static final byte[] STATIC_CACHE_HITS_HEADER = PinPrometheusWriter.header(
+            "pin_static_cache_hits_total", "counter", "Static files answered from memory");
+    private static final byte[] STATIC_CACHE_MISSES = PinPrometheusWriter.encode("pin_static_cache_misses_total");
+    private static final byte[] STATIC_CACHE_MISSES_HEADER = PinPrometheusWriter.header(
+            "pin_static_cache_misses_total", "counter", "Static files looked for outside the cache");
+    private static final byte[] STATIC_CACHE_BYTES = PinPrometheusWriter.encode("pin_static_cache_bytes");
+    private static final byte[] STATIC_CACHE_BYTES_HEADER = PinPrometheusWriter.header("pin_static_cache_bytes",
+            "gauge", "Bytes of static files held in memory");
+    private static final byte[] COMPRESSION_RESPONSES = PinPrometheusWriter
+            .encode("pin_compression_responses_total");
+    private static final byte[] COMPRESSION_RESPONSES_HEADER = PinPrometheusWriter.header(
+            "pin_compression_responses_total", "counter", "Route responses sent compressed");
+    private static final byte[] COMPRESSION_INPUT = PinPrometheusWriter.encode("pin_compression_input_bytes_total");
+    private static final byte[] COMPRESSION_INPUT_HEADER = PinPrometheusWriter.header(
+            "pin_compression_input_bytes_total", "counter", "Bytes of compressed responses before compressing");
+    private static final byte[] COMPRESSION_OUTPUT = PinPrometheusWriter.encode("pin_compression_output_bytes_total");
+    private static final byte[] COMPRESSION_OUTPUT_HEADER = PinPrometheusWriter.header(
+            "pin_compression_output_bytes_total", "counter", "Bytes of compressed responses sent");
+    private static final byte[] COMPRESSION_SECONDS = PinPrometheusWriter.encode("pin_compression_seconds_total");
+    private static final byte[] COMPRESSION_SECONDS_HEADER = PinPrometheusWriter.header(
+            "pin_compression_seconds_total", "counter", "Time spent compressing responses");
+    private static final byte[] CONCURRENCY_LIMIT = PinPrometheusWriter.encode("pin_concurrency_limit");
+    private static final byte[] CONCURRENCY_LIMIT_HEADER = PinPrometheusWriter.header("pin_concurrency_limit", "gauge",
+            "Current adaptive concurrency limit, by route");
+    private static final byte[] CONCURRENCY_LIMITED = PinPrometheusWriter.encode("pin_concurrency_limited_total");
+    private static final byte[] CONCURRENCY_LIMITED_HEADER = PinPrometheusWriter.header("pin_concurrency_limited_total",
+            "counter", "Requests rejected by the adaptive concurrency limit, by route");
+    private static final byte[] NO_LABELS = new byte[0];
+
+    private static final long[] LE_MICROS = { 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000 };
+    private static final String[] LE_LABELS = { "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5",
+            "1", "2.5", "5", "10", "+Inf" };
+    private static final byte[][] LE_LABEL_BYTES = new byte[LE_LABELS.length][];
+    /**
+     * For every histogram bucket, the first le it fits in. Buckets are never split, a bucket crossing a boundary
+     * is counted in the next le
+     */
+    private static final int[] LE_INDEX_BY_BUCKET = new int[PinLatencyHistogram.BUCKET_COUNT];
+
+    static {
+        for (int i = 0; i < LE_LABELS.length; i++) {
+            LE_LABEL_BYTES[i] = PinPrometheusWriter.encode(",le=\"" + LE_LABELS[i] + "\"");
+        }
+        int le = 0;
+        for (int bucket = 0; bucket < PinLatencyHistogram.BUCKET_COUNT; bucket++) {
+            while (le < LE_MICROS.length && PinLatencyHistogram.bucketUpperBoundMicros(bucket) > LE_MICROS[le]) {
+                le++;
+            }
+            LE_INDEX_BY_BUCKET[bucket] = le;
+        }
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void changeHeaders(Map<String, List<String>> responseHeaders) {
+        PinUtils.put(responseHeaders, PinContentType.CONTENT_TYPE, PinContentType.TEXT_PLAIN_PROMETHEUS);
+    }
+
+    @Override
+    public void render(Object obj, OutputStream outputStream) throws IOException {
+        if (!(obj instanceof PinServer)) {
+            //errors are not metrics, let the client know something went wrong with the status only
+            outputStream.close();
+            return;
+        }
+        PinServer pinServer = (PinServer) obj;
+        List<PinRouteStats> routeStats = pinServer.getRouteStats();
+        PinPrometheusWriter writer = new PinPrometheusWriter(outputStream);
+        try {
+            writer.write(ROUTES_HEADER);
+            writer.writeSample(ROUTES, NO_LABELS, routeStats.size());
+            writeWorkerPools(writer, pinServer.getWorkerPools());
+            writer.write(BUFFER_POOL_HITS_HEADER);
+            writer.writeSample(BUFFER_POOL_HITS, NO_LABELS, PinBufferPool.shared().getHits());
+            writer.write(BUFFER_POOL_MISSES_HEADER);
+            writer.writeSample(BUFFER_POOL_MISSES, NO_LABELS, PinBufferPool.shared().getMisses());
+            PinCompression compression = pinServer.getCompression();
+            writer.write(COMPRESSION_RESPONSES_HEADER);
+            writer.writeSample(COMPRESSION_RESPONSES, NO_LABELS, compression.getResponses());
+            writer.write(COMPRESSION_INPUT_HEADER);
+            writer.writeSample(COMPRESSION_INPUT, NO_LABELS, compression.getInputBytes());
+            writer.write(COMPRESSION_OUTPUT_HEADER);
+            writer.writeSample(COMPRESSION_OUTPUT, NO_LABELS, compression.getOutputBytes());
+            writer.write(COMPRESSION_SECONDS_HEADER);
+            writer.writeSampleSeconds(COMPRESSION_SECONDS, NO_LABELS, compression.getDeflateNanos());
+            PinStaticCache staticCache = pinServer.getStaticCache();
+            if (staticCache != null) {
+                writer.write(STATIC_CACHE_HITS_HEADER);
+                writer.writeSample(STATIC_CACHE_HITS, NO_LABELS, staticCache.getHits());
+                writer.write(STATIC_CACHE_MISSES_HEADER);
+                writer.writeSample(STATIC_CACHE_MISSES, NO_LABELS, staticCache.getMisses());
+                writer.write(STATIC_CACHE_BYTES_HEADER);
+                writer.writeSample(STATIC_CACHE_BYTES, NO_LABELS, staticCache.getBytes());
+            }
+
+            writer.write(REQUESTS_HEADER);
+            for (PinRouteStats stats : routeStats) {
+                writer.writeSample(REQUESTS, stats.getPrometheusLabels(), stats.getRequests());
+            }
+            writer.write(RESPONSES_HEADER);
+            for (PinRouteStats stats : routeStats) {
+                for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                    writer.write(RESPONSES);
+                    writer.write('{');
+                    writer.write(stats.getPrometheusLabels());
+                    writer.write(STATUS_CLASS_LABELS[statusClass - 1]);
+                    writer.write('}');
+                    writer.write(' ');
+                    writer.writeLong(stats.getResponses(statusClass));
+                    writer.write('\n');
+                }
+            }
+            writer.write(BYTES_OUT_HEADER);
+            for (PinRouteStats stats : routeStats) {
+                writer.writeSample(BYTES_OUT, stats.getPrometheusLabels(), stats.getBytesOut());
+            }
+            writeAdaptiveLimiters(writer, routeStats);
+            writer.write(DURATION_HEADER);
+            long[] cumulative = new long[LE_LABELS.length];
+            for (PinRouteStats stats : routeStats) {
+                writeHistogram(writer, stats.getLatency(), stats.getPrometheusLabels(), DURATION_BUCKET, DURATION_SUM,
+                        DURATION_COUNT, cumulative);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeWorkerPools(PinPrometheusWriter writer, List<PinWorkerPool> workerPools) throws IOException {
+        writer.write(POOL_QUEUE_HEADER);
+        for (PinWorkerPool workerPool : workerPools) {
+            writer.writeSample(POOL_QUEUE, workerPool.getPrometheusLabels(), workerPool.getQueueSize());
+        }
+        writer.write(POOL_ACTIVE_HEADER);
+        for (PinWorkerPool workerPool : workerPools) {
+            writer.writeSample(POOL_ACTIVE, workerPool.getPrometheusLabels(), workerPool.getActiveCount());
+        }
+        writer.write(POOL_DISPATCHED_HEADER);
+        for (PinWorkerPool workerPool : workerPools) {
+            writer.writeSample(POOL_DISPATCHED, workerPool.getPrometheusLabels(), workerPool.getDispatched());
+        }
+        writer.write(POOL_SHED_HEADER);
+        for (PinWorkerPool workerPool : workerPools) {
+            writer.writeSample(POOL_SHED, workerPool.getPrometheusLabels(), workerPool.getShed());
+        }
+        writer.write(POOL_WAIT_HEADER);
+        long[] cumulative = new long[LE_LABELS.length];
+        for (PinWorkerPool workerPool : workerPools) {
+            writeHistogram(writer, workerPool.getWaitHistogram(), workerPool.getPrometheusLabels(), POOL_WAIT_BUCKET,
+                    POOL_WAIT_SUM, POOL_WAIT_COUNT, cumulative);
+        }
+    }
+
+    private static void writeAdaptiveLimiters(PinPrometheusWriter writer, List<PinRouteStats> routeStats)
+            throws IOException {
+        boolean headerWritten = false;
+        for (PinRouteStats stats : routeStats) {
+            PinAdaptiveLimiter adaptiveLimiter = stats.getAdaptiveLimiter();
+            if (adaptiveLimiter != null) {
+                if (!headerWritten) {
+                    writer.write(CONCURRENCY_LIMIT_HEADER);
+                    headerWritten = true;
+                }
+                writer.writeSample(CONCURRENCY_LIMIT, stats.getPrometheusLabels(), adaptiveLimiter.getLimit());
+            }
+        }
+        if (!headerWritten) {
+            return;
+        }
+        writer.write(CONCURRENCY_LIMITED_HEADER);
+        for (PinRouteStats stats : routeStats) {
+            PinAdaptiveLimiter adaptiveLimiter = stats.getAdaptiveLimiter();
+            if (adaptiveLimiter != null) {
+                writer.writeSample(CONCURRENCY_LIMITED, stats.getPrometheusLabels(), adaptiveLimiter.getRejected());
+            }
+        }
+    }
+
+    private static void writeHistogram(PinPrometheusWriter writer, PinLatencyHistogram latency, byte[] labels,
+            byte[] bucketName, byte[] sumName, byte[] countName, long[] cumulative) throws IOException {
+        Arrays.fill(cumulative, 0);
+        long count = 0;
+        for (int bucket = 0; bucket < PinLatencyHistogram.BUCKET_COUNT; bucket++) {
+            long bucketCount = latency.getBucketCount(bucket);
+            if (bucketCount > 0) {
+                cumulative[LE_INDEX_BY_BUCKET[bucket]] += bucketCount;
+                count += bucketCount;
+            }
+        }
+        long accumulated = 0;
+        for (int le = 0; le < LE_LABELS.length; le++) {
+            accumulated += cumulative[le];
+            writer.write(bucketName);
+            writer.write('{');
+            writer.write(labels);
+            writer.write(LE_LABEL_BYTES[le]);
+            writer.write('}');
+            writer.write(' ');
+            writer.writeLong(accumulated);
+            writer.write('\n');
+        }
+        writer.writeSampleSeconds(sumName, labels, latency.getSumNanos());
+        //count from the buckets, so it is consistent with +Inf even while requests keep coming
+        writer.writeSample(countName, labels, count);
+    }
+}
@@ -0,0 +1,171 @@
+package com.pinframework;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes Prometheus text exposition format straight into an OutputStream.<br>
+ * Names and labels are expected to be already encoded, numbers are written digit by digit, so nothing but the
+ * buffer is allocated, and the buffer itself is reused between scrapes
+ */
+final class PinPrometheusWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * Most of the time there is only one scraper, so one cached buffer is enough. A concurrent scrape just allocates
+     */
+    private static final AtomicReference<byte[]> CACHED_BUFFER = new AtomicReference<>();
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position = 0;
+
+    PinPrometheusWriter(OutputStream out) {
+        this.out = out;
+        byte[] cached = CACHED_BUFFER.getAndSet(null);
+        this.buffer = cached != null ? cached : new byte[BUFFER_SIZE];
+    }
+
+    static byte[] encode(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param namesAndValues label name, label value, label name, label value...
+     * @return name1="value1",name2="value2" with values escaped and encoded
+     */
+    static byte[] labels(String... namesAndValues) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(namesAndValues[i]).append("=\"").append(escapeLabelValue(namesAndValues[i + 1])).append('"');
+        }
+        return encode(sb.toString());
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * @param name metric name
+     * @param type counter, gauge, histogram...
+     * @param help one line description
+     * @return the # HELP and # TYPE lines for said metric
+     */
+    static byte[] header(String name, String type, String help) {
+        return encode("# HELP " + name + " " + help + "\n# TYPE " + name + " " + type + "\n");
+    }
+
+    void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    void write(char asciiChar) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) asciiChar;
+    }
+
+    void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            write(MIN_LONG);
+            return;
+        }
+        if (value < 0) {
+            write('-');
+            writeDigits(-value, 1);
+        } else {
+            writeDigits(value, 1);
+        }
+    }
+
+    /**
+     * @param value     a non negative value
+     * @param minDigits pad with zeroes on the left up to this many digits
+     */
+    private void writeDigits(long value, int minDigits) throws IOException {
+        int digits = 1;
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+            digits++;
+        }
+        for (int i = digits; i < minDigits; i++) {
+            write('0');
+        }
+        while (divisor > 0) {
+            write((char) ('0' + (value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    /**
+     * @param nanos a non negative duration
+     */
+    void writeSeconds(long nanos) throws IOException {
+        writeDigits(nanos / NANOS_PER_SECOND, 1);
+        write('.');
+        writeDigits(nanos % NANOS_PER_SECOND, 9);
+    }
+
+    /**
+     * name{labels} value
+     */
+    void writeSample(byte[] name, byte[] labels, long value) throws IOException {
+        writeSampleStart(name, labels);
+        writeLong(value);
+        write('\n');
+    }
+
+    /**
+     * name{labels} value, with value converted from nanos to seconds
+     */
+    void writeSampleSeconds(byte[] name, byte[] labels, long nanos) throws IOException {
+        writeSampleStart(name, labels);
+        writeSeconds(nanos);
+        write('\n');
+    }
+
+    private void writeSampleStart(byte[] name, byte[] labels) throws IOException {
+        write(name);
+        if (labels.length > 0) {
+            write('{');
+            write(labels);
+            write('}');
+        }
+        write(' ');
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    void close() throws IOException {
+        try {
+            flushBuffer();
+            out.close();
+        } finally {
+            CACHED_BUFFER.set(buffer);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.pinframework;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Responses written without a handler or a render, when Pin itself has to say no.<br>
+ * Bodies are encoded once, so answering costs almost nothing even when lots of requests are turned away
+ */
+final class PinQuickResponse {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PinQuickResponse.class);
+
+    private static final byte[] SERVICE_UNAVAILABLE_BODY = "Service unavailable, try again later"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] PAYLOAD_TOO_LARGE_BODY = "Request body too large".getBytes(StandardCharsets.UTF_8);
+
+    static final int SERVICE_UNAVAILABLE_LENGTH = SERVICE_UNAVAILABLE_BODY.length;
+    static final int PAYLOAD_TOO_LARGE_LENGTH = PAYLOAD_TOO_LARGE_BODY.length;
+
+    private PinQuickResponse() {
+        //coverage
+    }
+
+    /**
+     * Sends 503 and closes the exchange. Never throws, the client may be long gone
+     *
+     * @param httpExchange      the exchange to answer
+     * @param retryAfterSeconds value for the Retry-After header, or null for none
+     */
+    static void serviceUnavailable(HttpExchange httpExchange, String retryAfterSeconds) {
+        if (retryAfterSeconds != null) {
+            httpExchange.getResponseHeaders().set("Retry-After", retryAfterSeconds);
+        }
+        send(httpExchange, HttpURLConnection.HTTP_UNAVAILABLE, SERVICE_UNAVAILABLE_BODY);
+    }
+
+    /**
+     * Sends 503 asking the client to close the connection, so it goes elsewhere while this server stops
+     *
+     * @param httpExchange the exchange to answer
+     */
+    static void draining(HttpExchange httpExchange) {
+        httpExchange.getResponseHeaders().set("Connection", "close");
+        send(httpExchange, HttpURLConnection.HTTP_UNAVAILABLE, SERVICE_UNAVAILABLE_BODY);
+    }
+
+    /**
+     * Sends 413 asking the client to close the connection, the body is not going to be read
+     *
+     * @param httpExchange the exchange to answer
+     */
+    static void payloadTooLarge(HttpExchange httpExchange) {
+        httpExchange.getResponseHeaders().set("Connection", "close");
+        send(httpExchange, 413, PAYLOAD_TOO_LARGE_BODY);
+    }
+
+    private static void send(HttpExchange httpExchange, int status, byte[] body) {
+        try {
+            httpExchange.getResponseHeaders().set(PinContentType.CONTENT_TYPE, PinContentType.TEXT_PLAIN_UTF8);
+            httpExchange.sendResponseHeaders(status, body.length);
+            httpExchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            LOG.debug("Can not send {} to '{}'", status, httpExchange.getRequestURI(), e);
+        } finally {
+            httpExchange.close();
+        }
+    }
+}
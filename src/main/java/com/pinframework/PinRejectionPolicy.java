@@ -0,0 +1,16 @@
+package com.pinframework;
+
+/**
+ * What to do with a request when its worker pool queue is full
+ */
+public enum PinRejectionPolicy {
+    /**
+     * Answer right away with 503 Service Unavailable and a Retry-After header, without touching the handler
+     */
+    SERVICE_UNAVAILABLE,
+    /**
+     * Handle the request in the thread that tried to queue it. Requests waiting for that thread wait longer
+     * meanwhile, so clients are slowed down instead of rejected
+     */
+    CALLER_RUNS
+}
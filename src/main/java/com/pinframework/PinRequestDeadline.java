@@ -0,0 +1,277 @@
+package com.pinframework;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The deadline of one request, a race between the handler answering and the timer wheel expiring it.<br>
+ * Whoever gets here first answers. If the wheel wins the future is cancelled, and the handler thread is interrupted
+ * unless it is reading the request or writing the response: an interrupt there closes the connection, and the
+ * timeout response could not be sent. It is interrupted when that I/O ends instead, and its next I/O fails.<br>
+ * The timeout response is written by a few expiry threads of its own, so a slow client can not stall the wheel or
+ * other deadlines
+ */
+final class PinRequestDeadline implements Runnable {
+
+    private static final int EXPIRY_THREADS = 2;
+    private static final ExecutorService EXPIRY_EXECUTOR = newExpiryExecutor();
+
+    private final Runnable onExpired;
+    private PinTimerWheel.Timeout timeout;
+    /**
+     * The thread running the handler, null when it is not running
+     */
+    private Thread handlerThread;
+    /**
+     * true while the handler thread reads the request or writes the response
+     */
+    private boolean handlerInIo = false;
+    private CompletableFuture<?> future;
+    private boolean answered = false;
+    private boolean expired = false;
+
+    /**
+     * @param onExpired writes the timeout response and closes the exchange
+     */
+    PinRequestDeadline(Runnable onExpired) {
+        this.onExpired = onExpired;
+    }
+
+    private static ExecutorService newExpiryExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "pin-deadline-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(EXPIRY_THREADS, EXPIRY_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    synchronized void schedule(long delayNanos) {
+        timeout = PinTimerWheel.shared().schedule(this, delayNanos);
+    }
+
+    synchronized void handlerStarted() {
+        handlerThread = Thread.currentThread();
+    }
+
+    /**
+     * Must be called in the handler thread, it clears the interrupt this deadline may have sent
+     */
+    synchronized void handlerReturned() {
+        handlerThread = null;
+        if (expired) {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * @param future returned by an async handler, cancelled right away if the deadline already expired
+     */
+    synchronized void futureReturned(CompletableFuture<?> future) {
+        if (expired) {
+            future.cancel(true);
+        } else {
+            this.future = future;
+        }
+    }
+
+    /**
+     * @return true if the handler got here first and must answer, false if the timeout response is already on its
+     * way
+     */
+    synchronized boolean answer() {
+        if (answered) {
+            return false;
+        }
+        answered = true;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return true;
+    }
+
+    synchronized boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * @return in, the handler is not interrupted while it reads from it
+     */
+    GuardedInputStream guard(InputStream in) {
+        return new GuardedInputStream(in);
+    }
+
+    /**
+     * @return out, the handler is not interrupted while it writes to it
+     */
+    OutputStream guard(OutputStream out) {
+        return new GuardedOutputStream(out);
+    }
+
+    /**
+     * Only the handler thread is guarded, the expiry threads write the timeout response through the same streams
+     *
+     * @return true if the I/O runs in the handler thread
+     * @throws IOException if the deadline expired, the exchange belongs to the timeout response
+     */
+    private synchronized boolean ioStarted() throws IOException {
+        if (Thread.currentThread() != handlerThread) {
+            return false;
+        }
+        if (expired) {
+            throw new IOException("Deadline exceeded, the timeout response is already on its way");
+        }
+        handlerInIo = true;
+        return true;
+    }
+
+    private synchronized void ioEnded(boolean guarded) {
+        if (!guarded) {
+            return;
+        }
+        handlerInIo = false;
+        if (expired) {
+            //the interrupt run() did not send
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs in the timer wheel thread when the deadline expires
+     */
+    @Override
+    public void run() {
+        CompletableFuture<?> futureToCancel;
+        synchronized (this) {
+            if (answered) {
+                return;
+            }
+            answered = true;
+            expired = true;
+            //interrupt while holding the lock, so handlerReturned and ioStarted never miss it
+            if (handlerThread != null && !handlerInIo) {
+                handlerThread.interrupt();
+            }
+            futureToCancel = future;
+        }
+        if (futureToCancel != null) {
+            futureToCancel.cancel(true);
+        }
+        EXPIRY_EXECUTOR.execute(onExpired);
+    }
+
+    final class GuardedInputStream extends FilterInputStream {
+
+        private GuardedInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * @return the stream this one reads from
+         */
+        InputStream getGuarded() {
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                return in.read();
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                return in.read(b, off, len);
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                return in.skip(n);
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                in.close();
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+    }
+
+    private final class GuardedOutputStream extends FilterOutputStream {
+
+        private GuardedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                out.write(b);
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                out.write(b, off, len);
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                out.flush();
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean guarded = ioStarted();
+            try {
+                out.close();
+            } finally {
+                ioEnded(guarded);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.pinframework;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Response body that holds what is written, up to a threshold, and sends the headers when it is closed, with the
+ * exact Content-Length. Small responses go out in one piece, and clients can reuse the connection without parsing
+ * chunks.<br>
+ * Once the threshold is passed, headers are sent for chunked encoding and everything goes straight to the exchange,
+ * so big responses are never held in memory.<br>
+ * Flush is ignored while holding, renders flush before closing and that would force chunked encoding
+ */
+final class PinResponseBuffer extends OutputStream {
+
+    private static final int INITIAL_SIZE = 512;
+
+    private final HttpExchange httpExchange;
+    private final int status;
+    private final int threshold;
+    private byte[] buffer;
+    private int count = 0;
+    /**
+     * null while holding, the exchange body once headers are sent
+     */
+    private OutputStream out = null;
+    private boolean closed = false;
+
+    /**
+     * @param httpExchange headers must not be sent yet
+     * @param status       sent when headers are
+     * @param threshold    bytes held at most, 0 to send headers for chunked encoding right away
+     */
+    PinResponseBuffer(HttpExchange httpExchange, int status, int threshold) throws IOException {
+        this.httpExchange = httpExchange;
+        this.status = status;
+        this.threshold = threshold;
+        //usual thresholds fit in a pooled buffer, bigger ones grow as needed
+        this.buffer = threshold <= PinBufferPool.BUFFER_SIZE ? PinBufferPool.shared().acquire()
+                : new byte[INITIAL_SIZE];
+        if (threshold == 0) {
+            startChunked();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (out == null && count < threshold) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+            return;
+        }
+        startChunked();
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out == null && count + len <= threshold) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+            return;
+        }
+        startChunked();
+        out.write(b, off, len);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(threshold, Math.max(capacity, buffer.length * 2)));
+        }
+    }
+
+    private void startChunked() throws IOException {
+        if (out != null) {
+            return;
+        }
+        httpExchange.sendResponseHeaders(status, 0);
+        out = httpExchange.getResponseBody();
+        if (count > 0) {
+            out.write(buffer, 0, count);
+        }
+        releaseBuffer();
+    }
+
+    private void releaseBuffer() {
+        PinBufferPool.shared().release(buffer);
+        buffer = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends headers with the exact length if they were not sent yet, and closes the exchange body.<br>
+     * Only the first call counts
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (out == null) {
+            boolean noBody = count == 0 || "HEAD".equals(httpExchange.getRequestMethod());
+            httpExchange.sendResponseHeaders(status, noBody ? -1 : count);
+            out = httpExchange.getResponseBody();
+            if (!noBody) {
+                out.write(buffer, 0, count);
+            }
+            releaseBuffer();
+        }
+        out.close();
+    }
+}
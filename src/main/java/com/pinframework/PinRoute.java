@@ -0,0 +1,155 @@
+package com.pinframework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A registered route: method, full path template and what to do with it.<br>
+ * Path params are the segments starting with : and are numbered from left to right
+ */
+final class PinRoute {
+
+    private final String method;
+    private final String fullPath;
+    private final PinHandler pinHandler;
+    private final PinAsyncHandler pinAsyncHandler;
+    private final PinRender pinRender;
+    private final String[] segments;
+    private final String[] pathParamNames;
+    private final PinRouteStats stats;
+    private final PinWorkerPool workerPool;
+    /**
+     * 0 if there is no deadline
+     */
+    private final long deadlineNanos;
+    /**
+     * null if the route concurrency is not limited
+     */
+    private final PinAdaptiveLimiter adaptiveLimiter;
+    /**
+     * null if request bodies are not budgeted
+     */
+    private final PinBodyBudget bodyBudget;
+    /**
+     * null if responses are not compressed
+     */
+    private final PinCompression compression;
+
+    /**
+     * A route handled in whatever thread the HttpServer gives it, without deadline
+     */
+    PinRoute(String method, String fullPath, PinHandler pinHandler, PinRender pinRender) {
+        this(method, fullPath, pinHandler, null, pinRender, PinWorkerPool.inline(), 0, null, null, null);
+    }
+
+    /**
+     * Exactly one of pinHandler and pinAsyncHandler is not null
+     */
+    PinRoute(String method, String fullPath, PinHandler pinHandler, PinAsyncHandler pinAsyncHandler,
+            PinRender pinRender, PinWorkerPool workerPool, long deadlineNanos, PinAdaptiveLimiter adaptiveLimiter,
+            PinBodyBudget bodyBudget, PinCompression compression) {
+        this.method = method;
+        this.fullPath = fullPath;
+        this.pinHandler = pinHandler;
+        this.pinAsyncHandler = pinAsyncHandler;
+        this.pinRender = pinRender;
+        this.segments = splitTemplate(fullPath);
+        List<String> names = new ArrayList<>();
+        for (String segment : segments) {
+            if (isParam(segment)) {
+                //substring(1) to remove colon
+                names.add(segment.substring(1));
+            }
+        }
+        this.pathParamNames = names.toArray(new String[0]);
+        this.stats = new PinRouteStats(method, fullPath, adaptiveLimiter);
+        this.workerPool = workerPool;
+        this.deadlineNanos = deadlineNanos;
+        this.adaptiveLimiter = adaptiveLimiter;
+        this.bodyBudget = bodyBudget;
+        this.compression = compression;
+    }
+
+    static String[] splitTemplate(String fullPath) {
+        //fullPath starts with /, substring to ignore it
+        //fullPath may end with /, PinUtils to remove
+        String withoutFirstSlash = fullPath.length() > 0 && fullPath.charAt(0) == '/' ? fullPath.substring(1) : fullPath;
+        return PinUtils.removeTrailingSlash(withoutFirstSlash).split("/", -1);
+    }
+
+    static boolean isParam(String segment) {
+        return segment.length() > 0 && segment.charAt(0) == ':';
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getFullPath() {
+        return fullPath;
+    }
+
+    /**
+     * @return null if the route has an async handler
+     */
+    PinHandler getPinHandler() {
+        return pinHandler;
+    }
+
+    /**
+     * @return null if the route has a sync handler
+     */
+    PinAsyncHandler getPinAsyncHandler() {
+        return pinAsyncHandler;
+    }
+
+    PinRender getPinRender() {
+        return pinRender;
+    }
+
+    String[] getSegments() {
+        return segments;
+    }
+
+    String[] getPathParamNames() {
+        return pathParamNames;
+    }
+
+    PinRouteStats getStats() {
+        return stats;
+    }
+
+    PinWorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * @return time the route has to answer since the request arrived, 0 if there is no deadline
+     */
+    long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return null if the route concurrency is not limited
+     */
+    PinAdaptiveLimiter getAdaptiveLimiter() {
+        return adaptiveLimiter;
+    }
+
+    PinBodyBudget getBodyBudget() {
+        return bodyBudget;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + fullPath;
+    }
+
+    /**
+     * @return null if responses are not compressed
+     */
+    PinCompression getCompression() {
+        return compression;
+    }
+}
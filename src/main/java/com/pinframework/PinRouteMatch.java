@@ -0,0 +1,23 @@
+package com.pinframework;
+
+/**
+ * Result of a PinRouter lookup: the route and its path params
+ */
+final class PinRouteMatch {
+
+    private final PinRoute route;
+    private final PinPathParams pathParams;
+
+    PinRouteMatch(PinRoute route, String path, int[] ranges) {
+        this.route = route;
+        this.pathParams = new PinPathParams(path, route.getPathParamNames(), ranges);
+    }
+
+    PinRoute getRoute() {
+        return route;
+    }
+
+    PinPathParams getPathParams() {
+        return pathParams;
+    }
+}
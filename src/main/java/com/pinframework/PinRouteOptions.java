@@ -0,0 +1,208 @@
+package com.pinframework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pinframework.exceptions.PinInitializationException;
+
+/**
+ * Optional settings for a single route, given to PinServer.on(...)<br>
+ * Every setting left alone keeps the server default
+ */
+public final class PinRouteOptions {
+
+    private String workerPoolName = PinWorkerPool.DEFAULT_NAME;
+    /**
+     * -1 to use the server default
+     */
+    private long deadlineMillis = -1;
+    /**
+     * 0 for no limiter
+     */
+    private int adaptiveInitialLimit = 0;
+    private int adaptiveMaxLimit = 0;
+    private PinRoutePriority priority = PinRoutePriority.NORMAL;
+    /**
+     * 0 for the server budget only
+     */
+    private long bodyBudgetBytes = 0;
+    private long maxBodyBytes = 0;
+    private final List<PinWarmupRequest> warmupRequests = new ArrayList<>();
+    /**
+     * null to use the server default
+     */
+    private Boolean compression = null;
+
+    /**
+     * The worker pool the route handler runs in, so a slow group of routes can only exhaust its own threads.<br>
+     * The pool must be declared with PinServerBuilder.workerPool(...)<br>
+     * Default "default", the pool of every other route
+     *
+     * @param workerPoolName
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions workerPool(String workerPoolName) {
+        this.workerPoolName = workerPoolName;
+        return this;
+    }
+
+    /**
+     * Time the route has to answer, counted from the request arrival, queue time included. When it is over the
+     * handler thread is interrupted, or the future cancelled, and the client gets a 504 through the route render.<br>
+     * Handlers can check PinExchange.getRemainingMillis() and isExpired() to give up earlier<br>
+     * Default the server deadline, see PinServerBuilder.deadlineMillis. Use 0 for no deadline
+     *
+     * @param deadlineMillis
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions deadlineMillis(long deadlineMillis) {
+        if (deadlineMillis < 0) {
+            throw new PinInitializationException(
+                    "Invalid deadlineMillis " + deadlineMillis + ". Valid deadlineMillis are 0 or positive");
+        }
+        this.deadlineMillis = deadlineMillis;
+        return this;
+    }
+
+    /**
+     * Limits the requests of this route running at the same time, queue time included, and adapts the limit to the
+     * route latency: when it rises the limit shrinks, so extra requests get a quick 503 instead of waiting on a slow
+     * dependency. Route stats show the current limit<br>
+     * Default no limit
+     *
+     * @param initialLimit concurrent requests allowed before there are measures
+     * @param maxLimit     the limit never goes above
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions adaptiveConcurrency(int initialLimit, int maxLimit) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new PinInitializationException("Invalid adaptive concurrency initialLimit " + initialLimit
+                    + ", maxLimit " + maxLimit + ". initialLimit must be 1 or more, and maxLimit at least initialLimit");
+        }
+        this.adaptiveInitialLimit = initialLimit;
+        this.adaptiveMaxLimit = maxLimit;
+        return this;
+    }
+
+    /**
+     * HIGH routes run in the priority lane instead of their worker pool, so they never wait behind other
+     * requests. Meant for liveness probes and control endpoints, that must be quick, not for business routes.<br>
+     * The lane only exists with PinServerBuilder.boundedExecutor, otherwise every request waits for an executor
+     * thread before its route is known, and registering a HIGH route fails<br>
+     * Default NORMAL
+     *
+     * @param priority
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions priority(PinRoutePriority priority) {
+        if (priority == null) {
+            throw new PinInitializationException("Invalid priority null");
+        }
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Bytes of request bodies this route lets in at the same time, on top of the server budget, so an upload
+     * route can not take the whole server budget. Requests over it get a 503, bodies over maxBodyBytes a 413<br>
+     * Default only the server budget, see PinServerBuilder.bodyBudget
+     *
+     * @param budgetBytes  body bytes of requests running at the same time
+     * @param maxBodyBytes biggest body of a single request
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions bodyBudget(long budgetBytes, long maxBodyBytes) {
+        if (maxBodyBytes < 1 || budgetBytes < maxBodyBytes) {
+            throw new PinInitializationException("Invalid body budget " + budgetBytes + " bytes, max body "
+                    + maxBodyBytes + " bytes. maxBodyBytes must be 1 or more, and budgetBytes at least maxBodyBytes");
+        }
+        this.bodyBudgetBytes = budgetBytes;
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    /**
+     * A sample request run through the route, in memory, while the server warms up before start, see
+     * PinServerBuilder.warmupIterations. The handler really runs, so samples must not change anything that
+     * matters<br>
+     * Default none, the route is not warmed up
+     *
+     * @param pathAndQuery like "users/1?details=true", as the route path, without the app context
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions warmupRequest(String pathAndQuery) {
+        return warmupRequest(pathAndQuery, null, null);
+    }
+
+    /**
+     * Same as warmupRequest(pathAndQuery), with a body
+     *
+     * @param pathAndQuery like "users/1?details=true", as the route path, without the app context
+     * @param body         sent as UTF-8
+     * @param contentType  like "application/json"
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions warmupRequest(String pathAndQuery, String body, String contentType) {
+        if (pathAndQuery == null) {
+            throw new PinInitializationException("Invalid warmup request null");
+        }
+        warmupRequests.add(new PinWarmupRequest(pathAndQuery, body, contentType));
+        return this;
+    }
+
+    /**
+     * Compresses the responses of this route, gzip or deflate as the client prefers, when their content type is
+     * text like and they are bigger than the server minimum, see PinServerBuilder.compression. Turn it off for
+     * routes that return secrets next to what the client sends, compression can leak them<br>
+     * Default the server setting, off unless PinServerBuilder.compression was called
+     *
+     * @param compression
+     * @return this instance so you can keep setting options
+     */
+    public PinRouteOptions compression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @param serverDefault used if the route did not set it
+     */
+    boolean isCompressed(boolean serverDefault) {
+        return compression == null ? serverDefault : compression;
+    }
+
+    String getWorkerPoolName() {
+        return workerPoolName;
+    }
+
+    List<PinWarmupRequest> getWarmupRequests() {
+        return warmupRequests;
+    }
+
+    PinRoutePriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return -1 if not set
+     */
+    long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * @return a new limiter, or null if the route has none
+     */
+    PinAdaptiveLimiter newAdaptiveLimiter() {
+        return adaptiveInitialLimit == 0 ? null : new PinAdaptiveLimiter(adaptiveInitialLimit, 1, adaptiveMaxLimit);
+    }
+
+    /**
+     * @param serverBodyBudget null if the server has none
+     * @return the budget of the route, serverBodyBudget if the route has none of its own
+     */
+    PinBodyBudget newBodyBudget(PinBodyBudget serverBodyBudget) {
+        return bodyBudgetBytes == 0 ? serverBodyBudget
+                : new PinBodyBudget(bodyBudgetBytes, maxBodyBytes, serverBodyBudget);
+    }
+}
@@ -0,0 +1,16 @@
+package com.pinframework;
+
+/**
+ * Which queue the requests of a route wait in
+ */
+public enum PinRoutePriority {
+    /**
+     * The worker pool of the route, with every other request
+     */
+    NORMAL,
+    /**
+     * The priority lane, a few threads of its own, so health checks and control endpoints answer in time while
+     * the other pools are full
+     */
+    HIGH
+}
@@ -0,0 +1,106 @@
+package com.pinframework;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one route, updated by request threads without locking.<br>
+ * Obtain them from PinServer.getRouteStats()
+ */
+public final class PinRouteStats {
+
+    private final String method;
+    private final String path;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder[] responsesByStatusClass = new LongAdder[5];
+    private final LongAdder bytesOut = new LongAdder();
+    private final PinLatencyHistogram latency = new PinLatencyHistogram();
+    private final PinAdaptiveLimiter adaptiveLimiter;
+    /**
+     * method="GET",path="/users/:id" already escaped and encoded, so metrics can be written without building Strings
+     */
+    private final byte[] prometheusLabels;
+
+    PinRouteStats(String method, String path, PinAdaptiveLimiter adaptiveLimiter) {
+        this.method = method;
+        this.path = path;
+        this.adaptiveLimiter = adaptiveLimiter;
+        for (int i = 0; i < responsesByStatusClass.length; i++) {
+            responsesByStatusClass[i] = new LongAdder();
+        }
+        this.prometheusLabels = PinPrometheusWriter.labels("method", method, "path", path);
+    }
+
+    byte[] getPrometheusLabels() {
+        return prometheusLabels;
+    }
+
+    /**
+     * @param status       http status sent, or -1 if none was sent
+     * @param bytesWritten response body bytes
+     * @param nanos        time since the request arrived
+     */
+    void record(int status, long bytesWritten, long nanos) {
+        requests.increment();
+        int statusClass = status / 100;
+        if (statusClass >= 1 && statusClass <= 5) {
+            responsesByStatusClass[statusClass - 1].increment();
+        }
+        bytesOut.add(bytesWritten);
+        latency.record(nanos);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the full path template, including appContext
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @param statusClass 1 to 5, for 1xx to 5xx
+     * @return how many responses had a status in said class
+     */
+    public long getResponses(int statusClass) {
+        if (statusClass < 1 || statusClass > 5) {
+            throw new IllegalArgumentException("statusClass must be between 1 and 5, not " + statusClass);
+        }
+        return responsesByStatusClass[statusClass - 1].sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public PinLatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the route concurrency limiter, null if the route has none
+     */
+    public PinAdaptiveLimiter getAdaptiveLimiter() {
+        return adaptiveLimiter;
+    }
+
+    public void reset() {
+        requests.reset();
+        for (LongAdder adder : responsesByStatusClass) {
+            adder.reset();
+        }
+        bytesOut.reset();
+        latency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path + " requests=" + getRequests() + " p99=" + latency.getValueAtPercentile(99) + "ns";
+    }
+}
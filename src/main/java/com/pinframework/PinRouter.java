@@ -0,0 +1,346 @@
+package com.pinframework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pinframework.exceptions.PinInitializationException;
+
+/**
+ * Route templates compiled into one segment trie per method.<br>
+ * Lookup walks the request path once, comparing segments in place, so it is O(path depth) and does not depend on
+ * the number of routes. When a static segment and a :param could both match, the static one wins; if it leads
+ * nowhere the :param branch is tried<br>
+ * Instances are immutable once built, adding or removing a route creates a new PinRouter, so a reference to one can be
+ * shared with request threads without any locking. The new PinRouter only copies the nodes on the path of that route
+ * and shares every other node with this one, so it costs O(template depth) and not O(routes)
+ */
+final class PinRouter {
+
+    private static final String[] NO_SEGMENTS = new String[0];
+    private static final int[] NO_HASHES = new int[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final int[] NO_RANGES = new int[0];
+
+    /**
+     * Never changed once a PinRouter can see it, any change is made to a copy
+     */
+    private static final class Node {
+        private String[] staticSegments = NO_SEGMENTS;
+        private int[] staticHashes = NO_HASHES;
+        private Node[] staticChildren = NO_NODES;
+        private Node paramChild;
+        private PinRoute route;
+        /**
+         * When route was added, to list the routes in that order
+         */
+        private long routeSequence;
+
+        private Node copy() {
+            Node copy = new Node();
+            copy.staticSegments = staticSegments;
+            copy.staticHashes = staticHashes;
+            copy.staticChildren = staticChildren;
+            copy.paramChild = paramChild;
+            copy.route = route;
+            copy.routeSequence = routeSequence;
+            return copy;
+        }
+
+        private boolean isEmpty() {
+            return route == null && paramChild == null && staticChildren.length == 0;
+        }
+
+        private int indexOfStatic(String segment) {
+            for (int i = 0; i < staticSegments.length; i++) {
+                if (staticSegments[i].equals(segment)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Node findStatic(String path, int start, int end, int hash) {
+            int length = end - start;
+            for (int i = 0; i < staticSegments.length; i++) {
+                String segment = staticSegments[i];
+                if (staticHashes[i] == hash && segment.length() == length
+                        && path.regionMatches(start, segment, 0, length)) {
+                    return staticChildren[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return a copy of this node where the static child at index is child, appended when index is -1 and
+         * removed when child is null
+         */
+        private Node withStatic(int index, String segment, Node child) {
+            Node copy = copy();
+            int size = staticSegments.length;
+            if (index == -1) {
+                copy.staticSegments = Arrays.copyOf(staticSegments, size + 1);
+                copy.staticHashes = Arrays.copyOf(staticHashes, size + 1);
+                copy.staticChildren = Arrays.copyOf(staticChildren, size + 1);
+                copy.staticSegments[size] = segment;
+                copy.staticHashes[size] = segment.hashCode();
+                copy.staticChildren[size] = child;
+            } else if (child == null) {
+                copy.staticSegments = without(staticSegments, index, new String[size - 1]);
+                copy.staticHashes = new int[size - 1];
+                System.arraycopy(staticHashes, 0, copy.staticHashes, 0, index);
+                System.arraycopy(staticHashes, index + 1, copy.staticHashes, index, size - index - 1);
+                copy.staticChildren = without(staticChildren, index, new Node[size - 1]);
+            } else {
+                copy.staticChildren = staticChildren.clone();
+                copy.staticChildren[index] = child;
+            }
+            return copy;
+        }
+
+        private static <T> T[] without(T[] array, int index, T[] target) {
+            System.arraycopy(array, 0, target, 0, index);
+            System.arraycopy(array, index + 1, target, index, array.length - index - 1);
+            return target;
+        }
+    }
+
+    private final Map<String, Node> rootByMethod;
+    private final int routeCount;
+    private final long nextSequence;
+    /**
+     * Most path params of any route ever added, it sizes the ranges of a match so it does not shrink on removal
+     */
+    private final int maxPathParams;
+
+    PinRouter() {
+        this(Collections.emptyMap(), 0, 0, 0);
+    }
+
+    private PinRouter(Map<String, Node> rootByMethod, int routeCount, long nextSequence, int maxPathParams) {
+        this.rootByMethod = rootByMethod;
+        this.routeCount = routeCount;
+        this.nextSequence = nextSequence;
+        this.maxPathParams = maxPathParams;
+    }
+
+    /**
+     * @param route the new route
+     * @return a new PinRouter with every route in this one plus route
+     * @throws PinInitializationException if route collides with an existing one
+     */
+    PinRouter withRoute(PinRoute route) {
+        Map<String, Node> newRootByMethod = new HashMap<>(rootByMethod);
+        newRootByMethod.put(route.getMethod(), insert(rootByMethod.get(route.getMethod()), route, 0));
+        return new PinRouter(newRootByMethod, routeCount + 1, nextSequence + 1,
+                Math.max(maxPathParams, route.getPathParamNames().length));
+    }
+
+    /**
+     * @param method   http method
+     * @param fullPath the full path exactly as it was registered
+     * @return a new PinRouter without said route, or this same instance if it was not present
+     */
+    PinRouter withoutRoute(String method, String fullPath) {
+        Node root = rootByMethod.get(method);
+        if (root == null) {
+            return this;
+        }
+        Node newRoot = remove(root, PinRoute.splitTemplate(fullPath), 0, fullPath);
+        if (newRoot == root) {
+            return this;
+        }
+        Map<String, Node> newRootByMethod = new HashMap<>(rootByMethod);
+        if (newRoot == null) {
+            newRootByMethod.remove(method);
+        } else {
+            newRootByMethod.put(method, newRoot);
+        }
+        return new PinRouter(newRootByMethod, routeCount - 1, nextSequence, maxPathParams);
+    }
+
+    /**
+     * Walks the whole trie, it is meant for stats and not for requests
+     *
+     * @return every route, in the order they were added
+     */
+    List<PinRoute> getRoutes() {
+        List<Node> nodes = new ArrayList<>(routeCount);
+        for (Node root : rootByMethod.values()) {
+            collect(root, nodes);
+        }
+        nodes.sort(Comparator.comparingLong(node -> node.routeSequence));
+        List<PinRoute> routes = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            routes.add(node.route);
+        }
+        return Collections.unmodifiableList(routes);
+    }
+
+    private static void collect(Node node, List<Node> nodes) {
+        if (node.route != null) {
+            nodes.add(node);
+        }
+        for (Node child : node.staticChildren) {
+            collect(child, nodes);
+        }
+        if (node.paramChild != null) {
+            collect(node.paramChild, nodes);
+        }
+    }
+
+    boolean isEmpty() {
+        return routeCount == 0;
+    }
+
+    /**
+     * @param node where the segments of route from index on go, null if there is none yet
+     * @return a copy of node with route under it
+     */
+    private Node insert(Node node, PinRoute route, int index) {
+        Node current = node == null ? new Node() : node;
+        String[] segments = route.getSegments();
+        if (index == segments.length) {
+            if (current.route != null) {
+                throw new PinInitializationException(
+                        "PinHandler already present method = '" + route.getMethod() + "' and full path = '"
+                                + route.getFullPath() + "', it collides with '" + current.route.getFullPath() + "'");
+            }
+            Node copy = current.copy();
+            copy.route = route;
+            copy.routeSequence = nextSequence;
+            return copy;
+        }
+        String segment = segments[index];
+        if (PinRoute.isParam(segment)) {
+            Node copy = current.copy();
+            copy.paramChild = insert(current.paramChild, route, index + 1);
+            return copy;
+        }
+        int staticIndex = current.indexOfStatic(segment);
+        Node child = staticIndex == -1 ? null : current.staticChildren[staticIndex];
+        return current.withStatic(staticIndex, segment, insert(child, route, index + 1));
+    }
+
+    /**
+     * @return node itself if the route is not under it, null if nothing is left under it without the route, or a copy
+     * of node without the route
+     */
+    private static Node remove(Node node, String[] segments, int index, String fullPath) {
+        Node copy;
+        if (index == segments.length) {
+            if (node.route == null || !node.route.getFullPath().equals(fullPath)) {
+                return node;
+            }
+            copy = node.copy();
+            copy.route = null;
+        } else if (PinRoute.isParam(segments[index])) {
+            if (node.paramChild == null) {
+                return node;
+            }
+            Node paramChild = remove(node.paramChild, segments, index + 1, fullPath);
+            if (paramChild == node.paramChild) {
+                return node;
+            }
+            copy = node.copy();
+            copy.paramChild = paramChild;
+        } else {
+            int staticIndex = node.indexOfStatic(segments[index]);
+            if (staticIndex == -1) {
+                return node;
+            }
+            Node child = node.staticChildren[staticIndex];
+            Node newChild = remove(child, segments, index + 1, fullPath);
+            if (newChild == child) {
+                return node;
+            }
+            copy = node.withStatic(staticIndex, segments[index], newChild);
+        }
+        return copy.isEmpty() ? null : copy;
+    }
+
+    boolean hasMethod(String method) {
+        return rootByMethod.containsKey(method);
+    }
+
+    /**
+     * Only meant for the not found path, to tell a wrong method from a missing route
+     *
+     * @param method         http method already known to have no match
+     * @param requestURIPath decoded request path, starting with /
+     * @return true if any other method has a route for this path
+     */
+    boolean matchesOtherMethod(String method, String requestURIPath) {
+        for (String otherMethod : rootByMethod.keySet()) {
+            if (!otherMethod.equals(method) && find(otherMethod, requestURIPath) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param method         http method
+     * @param requestURIPath decoded request path, starting with /
+     * @return the matching route with the positions of its path params, or null if there is none
+     */
+    PinRouteMatch find(String method, String requestURIPath) {
+        Node root = rootByMethod.get(method);
+        if (root == null) {
+            return null;
+        }
+        //path starts with /, skip it
+        //path may end with /, ignore it
+        int start = requestURIPath.length() > 0 && requestURIPath.charAt(0) == '/' ? 1 : 0;
+        int end = requestURIPath.length();
+        if (end > start && requestURIPath.charAt(end - 1) == '/') {
+            end--;
+        }
+        int[] ranges = maxPathParams == 0 ? NO_RANGES : new int[maxPathParams * 2];
+        PinRoute route = match(root, requestURIPath, start, end, ranges, 0);
+        return route == null ? null : new PinRouteMatch(route, requestURIPath, ranges);
+    }
+
+    private static PinRoute match(Node node, String path, int segmentStart, int end, int[] ranges, int paramIndex) {
+        int segmentEnd = path.indexOf('/', segmentStart);
+        if (segmentEnd == -1 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+        boolean last = segmentEnd == end;
+
+        if (node.staticSegments.length > 0) {
+            Node child = node.findStatic(path, segmentStart, segmentEnd, hash(path, segmentStart, segmentEnd));
+            if (child != null) {
+                PinRoute route = last ? child.route : match(child, path, segmentEnd + 1, end, ranges, paramIndex);
+                if (route != null) {
+                    return route;
+                }
+            }
+        }
+
+        Node paramChild = node.paramChild;
+        if (paramChild != null) {
+            ranges[paramIndex * 2] = segmentStart;
+            ranges[paramIndex * 2 + 1] = segmentEnd;
+            return last ? paramChild.route : match(paramChild, path, segmentEnd + 1, end, ranges, paramIndex + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Same value as String.hashCode of the substring, without creating it
+     */
+    private static int hash(String path, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + path.charAt(i);
+        }
+        return h;
+    }
+
+}
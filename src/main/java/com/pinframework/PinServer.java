@@ -1,58 +1,238 @@
 package com.pinframework;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.pinframework.exceptions.PinInitializationException;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 public class PinServer {
 
     private static final Logger LOG = LoggerFactory.getLogger(PinServer.class);
+    private static final int WARMUP_TIMEOUT_SECONDS = 10;
+    static final String STATIC_FOLDER = "static/";
+    static final String WEBJARS_FOLDER = "META-INF/resources/webjars";
 
     /**
      * will be / or /something/
      */
     private final String appContext;
     private final HttpServer httpServer;
-    private final Map<String, PinAdapter> adaptersByPath = new HashMap<>();
+    private final Map<String, PinAdapter> adaptersByPath = new ConcurrentHashMap<>();
+    /**
+     * only when singleContextEnabled, the adapter for every route and static file
+     */
+    private final PinAdapter rootAdapter;
     private final int port;
     private final boolean restrictedCharset;
     private final Map<String, PinRender> rendersByType = new HashMap<>();
     private final PinRender defaultRender;
     private final Gson gson;
     private final Map<String, String> mimeTypeByExtension = PinMimeType.cloneMap();
+    /**
+     * where routes and static files run
+     */
+    private final PinWorkerPool defaultWorkerPool;
+    /**
+     * declared in the builder, routes choose them with PinRouteOptions
+     */
+    private final Map<String, PinWorkerPool> workerPoolsByName;
+    /**
+     * for routes that do not set their own, 0 for none
+     */
+    private final long defaultDeadlineMillis;
+    /**
+     * body bytes of every route request at the same time, null for no limit
+     */
+    private final PinBodyBudget bodyBudget;
+    /**
+     * responses and static files up to this size are sent with Content-Length
+     */
+    private final int responseBufferBytes;
+    /**
+     * static files and webjars in memory, null if disabled
+     */
+    private final PinStaticCache staticCache;
+    /**
+     * every resource under static/ and webjars in the classpath
+     */
+    private final PinStaticIndex staticIndex;
+    /**
+     * gzip variants of classpath resources, null if disabled
+     */
+    private final PinStaticPrecompressor staticPrecompressor;
+    /**
+     * for routes with compression enabled
+     */
+    private final PinCompression compression;
+    private final PinInFlightTracker inFlightTracker = new PinInFlightTracker();
+    /**
+     * by method and full path, declared with PinRouteOptions.warmupRequest
+     */
+    private final Map<String, List<PinWarmupRequest>> warmupRequestsByRoute = new ConcurrentHashMap<>();
+    private int warmupIterations = 0;
 
 
     PinServer(HttpServer httpServer, boolean restrictedCharset, String appContext, boolean webjarsSupportEnabled,
-            File externalFolderCanonical, PinRender defaultRender, Gson gson) {
+            File externalFolderCanonical, PinRender defaultRender, Gson gson, boolean singleContextEnabled,
+            PinWorkerPool defaultWorkerPool, Map<String, PinWorkerPool> workerPoolsByName, long defaultDeadlineMillis,
+            PinBodyBudget bodyBudget, int responseBufferBytes, PinStaticCache staticCache,
+            PinStaticIndex staticIndex, PinStaticPrecompressor staticPrecompressor, PinCompression compression) {
         this.httpServer = httpServer;
+        this.compression = compression;
+        this.staticIndex = staticIndex;
+        this.staticPrecompressor = staticPrecompressor;
+        this.staticCache = staticCache;
+        this.responseBufferBytes = responseBufferBytes;
+        this.bodyBudget = bodyBudget;
+        this.defaultDeadlineMillis = defaultDeadlineMillis;
+        this.defaultWorkerPool = defaultWorkerPool;
+        this.workerPoolsByName = workerPoolsByName;
         this.restrictedCharset = restrictedCharset;
         this.appContext = appContext;
         this.port = httpServer.getAddress().getPort();
-        if (webjarsSupportEnabled) {
-            httpServer.createContext(this.appContext + "webjars", (ex -> resourceFolder(ex, "META-INF/resources/webjars", null)));
-        }
-        httpServer.createContext(this.appContext, (ex -> {
-            resourceFolder(ex, "static/", externalFolderCanonical);
-        }));
         this.defaultRender = defaultRender;
         this.gson = gson;
+        String webjarsContext = this.appContext + "webjars";
+        if (singleContextEnabled) {
+            this.rootAdapter = new PinAdapter(gson, inFlightTracker, onDefaultWorkerPool(ex -> {
+                String path = ex.getRequestURI().getPath();
+                if (webjarsSupportEnabled && (path.equals(webjarsContext) || path.startsWith(webjarsContext + "/"))) {
+                    resourceFolder(ex, WEBJARS_FOLDER, null, webjarsContext);
+                } else {
+                    resourceFolder(ex, STATIC_FOLDER, externalFolderCanonical, this.appContext);
+                }
+            }), responseBufferBytes);
+            httpServer.createContext(this.appContext, rootAdapter);
+        } else {
+            this.rootAdapter = null;
+            if (webjarsSupportEnabled) {
+                httpServer.createContext(webjarsContext, onDefaultWorkerPool(ex -> resourceFolder(ex, WEBJARS_FOLDER, null, webjarsContext)));
+            }
+            httpServer.createContext(this.appContext, onDefaultWorkerPool(ex -> {
+                resourceFolder(ex, STATIC_FOLDER, externalFolderCanonical, this.appContext);
+            }));
+        }
+    }
 
+    /**
+     * Static files are served in the default worker pool too, so they are shed like any route when it is full
+     */
+    private HttpHandler onDefaultWorkerPool(HttpHandler httpHandler) {
+        return ex -> {
+            if (!inFlightTracker.enter(ex)) {
+                return;
+            }
+            boolean dispatched = defaultWorkerPool.dispatch(ex, () -> {
+                try {
+                    httpHandler.handle(ex);
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("Error on request uri '{}'", ex.getRequestURI().getPath(), e);
+                    ex.close();
+                } finally {
+                    inFlightTracker.exit();
+                }
+            });
+            if (!dispatched) {
+                inFlightTracker.exit();
+            }
+        };
     }
 
+    /**
+     * Routes can be added before or after start, requests already running are not affected
+     */
     public PinServer on(String method, String path, PinHandler pinHandler, PinRender pinRender) {
+        return on(method, path, pinHandler, pinRender, new PinRouteOptions());
+    }
+
+    /**
+     * Same as on(method, path, pinHandler, pinRender) with settings for this route only
+     */
+    public synchronized PinServer on(String method, String path, PinHandler pinHandler, PinRender pinRender,
+            PinRouteOptions pinRouteOptions) {
+        return register(newRoute(method, path, pinHandler, null, pinRender, pinRouteOptions), pinRouteOptions);
+    }
+
+    /**
+     * Like on(...), but the handler returns a future and does not hold a thread while it waits.<br>
+     * The response is rendered when the future completes
+     */
+    public PinServer onAsync(String method, String path, PinAsyncHandler pinAsyncHandler, PinRender pinRender) {
+        return onAsync(method, path, pinAsyncHandler, pinRender, new PinRouteOptions());
+    }
+
+    /**
+     * Same as onAsync(method, path, pinAsyncHandler, pinRender) with settings for this route only
+     */
+    public synchronized PinServer onAsync(String method, String path, PinAsyncHandler pinAsyncHandler,
+            PinRender pinRender, PinRouteOptions pinRouteOptions) {
+        return register(newRoute(method, path, null, pinAsyncHandler, pinRender, pinRouteOptions), pinRouteOptions);
+    }
+
+    private PinRoute newRoute(String method, String path, PinHandler pinHandler, PinAsyncHandler pinAsyncHandler,
+            PinRender pinRender, PinRouteOptions pinRouteOptions) {
         String fullPath = PinUtils.removeTrailingSlash(appContext + path);
+        long deadlineMillis = pinRouteOptions.getDeadlineMillis() < 0 ? defaultDeadlineMillis
+                : pinRouteOptions.getDeadlineMillis();
+        PinWorkerPool workerPool = pinRouteOptions.getPriority() == PinRoutePriority.HIGH
+                ? findPriorityLane(method, fullPath, pinRouteOptions.getWorkerPoolName())
+                : findWorkerPool(pinRouteOptions.getWorkerPoolName());
+        return new PinRoute(method, fullPath, pinHandler, pinAsyncHandler, pinRender, workerPool,
+                TimeUnit.MILLISECONDS.toNanos(deadlineMillis), pinRouteOptions.newAdaptiveLimiter(),
+                pinRouteOptions.newBodyBudget(bodyBudget),
+                pinRouteOptions.isCompressed(compression.isEnabledByDefault()) ? compression : null);
+    }
+
+    private PinWorkerPool findPriorityLane(String method, String fullPath, String workerPoolName) {
+        if (!PinWorkerPool.DEFAULT_NAME.equals(workerPoolName)) {
+            throw new PinInitializationException("Route " + method + " '" + fullPath
+                    + "' can not be HIGH priority and run in worker pool '" + workerPoolName + "'");
+        }
+        PinWorkerPool priorityLane = workerPoolsByName.get(PinWorkerPool.PRIORITY_NAME);
+        if (priorityLane == null) {
+            //every request waits for an HttpServer executor thread before its route is known, HIGH would mean nothing
+            throw new PinInitializationException("Route " + method + " '" + fullPath
+                    + "' can not be HIGH priority, the priority lane needs PinServerBuilder.boundedExecutor(...)");
+        }
+        return priorityLane;
+    }
+
+    private PinServer register(PinRoute route, PinRouteOptions pinRouteOptions) {
+        String fullPath = route.getFullPath();
+        String routeKey = route.getMethod() + " " + fullPath;
+        if (pinRouteOptions.getWarmupRequests().isEmpty()) {
+            warmupRequestsByRoute.remove(routeKey);
+        } else {
+            warmupRequestsByRoute.put(routeKey, new ArrayList<>(pinRouteOptions.getWarmupRequests()));
+        }
+        if (rootAdapter != null) {
+            rootAdapter.put(route);
+            return this;
+        }
         //This is needed because the way httpServer handles contexts. If it has a my-web-app context, said context
         //will NOT handle a my-web-app/users/1234 request, so I need to register a my-web-app/users context
         //So a unique my-web-app may (and probably will) internally have several contexts registered in the httpServer
@@ -60,15 +240,52 @@ public class PinServer {
 
         PinAdapter pinAdapter = adaptersByPath.get(maximalPathValidAsContext);
         if (pinAdapter != null) {
-            pinAdapter.put(method, fullPath, pinHandler, pinRender);
+            pinAdapter.put(route);
         } else {
-            pinAdapter = new PinAdapter(method, fullPath, pinHandler, pinRender, gson);
+            pinAdapter = new PinAdapter(route, gson, inFlightTracker, responseBufferBytes);
             httpServer.createContext(maximalPathValidAsContext, pinAdapter);
             adaptersByPath.put(maximalPathValidAsContext, pinAdapter);
         }
         return this;
     }
 
+    /**
+     * Removes a route, before or after start. Requests already running are not affected
+     *
+     * @param method http method
+     * @param path   the path exactly as it was used in on(...)
+     * @return true if the route was present
+     */
+    public synchronized boolean off(String method, String path) {
+        String fullPath = PinUtils.removeTrailingSlash(appContext + path);
+        warmupRequestsByRoute.remove(method + " " + fullPath);
+        if (rootAdapter != null) {
+            return rootAdapter.remove(method, fullPath);
+        }
+        String maximalPathValidAsContext = PinUtils.maximalPathValidAsContext(fullPath);
+        PinAdapter pinAdapter = adaptersByPath.get(maximalPathValidAsContext);
+        if (pinAdapter == null || !pinAdapter.remove(method, fullPath)) {
+            return false;
+        }
+        if (pinAdapter.isEmpty()) {
+            httpServer.removeContext(maximalPathValidAsContext);
+            adaptersByPath.remove(maximalPathValidAsContext);
+        }
+        return true;
+    }
+
+    private PinWorkerPool findWorkerPool(String workerPoolName) {
+        if (PinWorkerPool.DEFAULT_NAME.equals(workerPoolName)) {
+            return defaultWorkerPool;
+        }
+        PinWorkerPool workerPool = workerPoolsByName.get(workerPoolName);
+        if (workerPool == null) {
+            throw new PinInitializationException("Unknown worker pool '" + workerPoolName
+                    + "'. Declare it with PinServerBuilder.workerPool(...)");
+        }
+        return workerPool;
+    }
+
     public PinServer onGet(String path, PinResponse pinResponse, String pinRenderType) {
         return on("GET", path, ex -> pinResponse, this.findRender(pinRenderType));
     }
@@ -133,9 +350,12 @@ public class PinServer {
         return on("DELETE", path, pinHandler, defaultRender);
     }
 
-    private void resourceFolder(HttpExchange ex, String resourceFolder, File externalFolder) throws IOException {
+    private void resourceFolder(HttpExchange ex, String resourceFolder, File externalFolder, String contextPath) throws IOException {
 
-        String filename = ex.getRequestURI().getPath().replaceFirst("\\Q" + ex.getHttpContext().getPath() + "\\E", "");
+        String path = ex.getRequestURI().getPath();
+        int contextAt = path.indexOf(contextPath);
+        String filename = contextAt < 0 ? path
+                : path.substring(0, contextAt) + path.substring(contextAt + contextPath.length());
         if (filename.trim().length() == 0) {
             filename = "index.html";
         }
@@ -146,66 +366,463 @@ public class PinServer {
         if (!"GET".equals(ex.getRequestMethod())) {
             LOG.error("Error trying to access '{}', wrong method '{}'", ex.getRequestURI().getPath(),
                     ex.getRequestMethod());
-            ex.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, 0);
-            ex.getResponseBody().write(("Error trying to access '" + ex.getRequestURI().getPath() +"', wrong method '" + ex.getRequestMethod() +"'")
-                    .getBytes(StandardCharsets.UTF_8));
+            byte[] body = ("Error trying to access '" + ex.getRequestURI().getPath() + "', wrong method '"
+                    + ex.getRequestMethod() + "'").getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, body.length);
+            ex.getResponseBody().write(body);
             ex.close();
             return;
         }
 
-        try (InputStream is = findInputStream(resourceFolder, externalFolder, filename)) {
-
-            if (is == null) {
-                ex.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, 0);
-                ex.getResponseBody().write(("File '" + filename + "' not found")
-                        .getBytes(StandardCharsets.UTF_8));
-                LOG.warn("File not found for request uri '{}'", ex.getRequestURI().getPath());
-            } else {
-
-                ex.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
-
-                PinUtils.copy(is, ex.getResponseBody());
-            }
+        try {
+            sendResource(ex, resourceFolder, externalFolder, filename, mimeType);
         } catch (Exception e) {
             LOG.error("Error on request uri '{}'", ex.getRequestURI().getPath(), e);
-            ex.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, 0);
+            ex.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
         }
         ex.close();
     }
 
-    private InputStream findInputStream(String resourceFolder, File externalFolder, String filename)
-            throws IOException {
+    /**
+     * From the static cache, then the external folder, then the classpath. Files that fit are cached on the way.<br>
+     * Compressible files go gzipped to clients that accept it, if there is a .gz next to them or a precompressed
+     * variant. The identity file is only looked for when there is none, and the cache remembers there is none, so
+     * the next clients get the identity entry without looking again
+     */
+    private void sendResource(HttpExchange ex, String resourceFolder, File externalFolder, String filename,
+            String mimeType) throws IOException {
+        String name = resourceFolder + filename;
+        String encoding = null;
+        if (PinContentEncoding.isCompressible(mimeType)) {
+            //the body depends on Accept-Encoding, even when there is no compressed variant yet
+            ex.getResponseHeaders().set(PinContentEncoding.VARY, PinContentEncoding.ACCEPT_ENCODING);
+            encoding = PinContentEncoding.negotiate(
+                    ex.getRequestHeaders().getFirst(PinContentEncoding.ACCEPT_ENCODING), PinContentEncoding.GZIP);
+        }
+        String gzipName = name + ".gz";
+        if (encoding != null && staticCache != null && staticCache.isMissing(gzipName)) {
+            encoding = null;
+        }
+        if (sendFromCache(ex, encoding == null ? name : gzipName, encoding)) {
+            return;
+        }
+
+        File file = null;
         if (externalFolder != null) {
-            File file = new File(externalFolder, filename).getCanonicalFile();
+            file = new File(externalFolder, filename).getCanonicalFile();
             if (file.getAbsolutePath().indexOf(externalFolder.getAbsolutePath()) != 0) {
                 LOG.error("Error on filename '{}', directory traversal attack", filename);
                 //DO NOT return a more specific message, give no clues about traversal attack being detected
                 //should look like a standard file not found from the outside
-                return null;
+                notFound(ex, filename);
+                return;
+            }
+        }
+        boolean external = file != null && file.isFile();
+
+        boolean gzipMissing = false;
+        if (encoding != null) {
+            if (sendGzipVariant(ex, name, file, external)) {
+                return;
+            }
+            gzipMissing = true;
+            if (sendFromCache(ex, name, null)) {
+                rememberGzipMissing(gzipName, file, external);
+                return;
+            }
+        }
+
+        if (external) {
+            sendExternalFile(ex, name, file, null);
+        } else {
+            PinStaticIndex.Resource resource = staticIndex.find(name);
+            if (resource == null) {
+                notFound(ex, filename);
+                return;
+            }
+            sendClasspathResource(ex, name, resource, file, null);
+        }
+        if (gzipMissing) {
+            rememberGzipMissing(gzipName, file, external);
+        }
+    }
+
+    /**
+     * Only for files that exist, and not while the precompressor may still add a variant
+     *
+     * @param file     where the file is in the external folder, null if there is no external folder
+     * @param external true if file is there
+     */
+    private void rememberGzipMissing(String gzipName, File file, boolean external) {
+        if (staticCache == null || (staticPrecompressor != null && !staticPrecompressor.isDone())) {
+            return;
+        }
+        //forgotten when a .gz shows up next to an external file, or an external file hides a classpath resource
+        staticCache.put(gzipName, PinStaticCache.Entry.missing(external ? new File(file.getPath() + ".gz") : file));
+    }
+
+    /**
+     * An external file only has its own .gz, a classpath resource may have a .gz in the classpath or a
+     * precompressed one
+     *
+     * @param file     where the file is in the external folder, null if there is no external folder
+     * @param external true if file is there
+     * @return false if there is no gzip variant
+     */
+    private boolean sendGzipVariant(HttpExchange ex, String name, File file, boolean external) throws IOException {
+        String gzipName = name + ".gz";
+        if (external) {
+            File gzipFile = new File(file.getPath() + ".gz");
+            if (!gzipFile.isFile()) {
+                return false;
+            }
+            sendExternalFile(ex, gzipName, gzipFile, PinContentEncoding.GZIP);
+            return true;
+        }
+        PinStaticIndex.Resource gzipResource = staticIndex.find(gzipName);
+        if (gzipResource != null) {
+            sendClasspathResource(ex, gzipName, gzipResource, file, PinContentEncoding.GZIP);
+            return true;
+        }
+        File precompressed = staticPrecompressor == null ? null : staticPrecompressor.find(name);
+        if (precompressed == null) {
+            return false;
+        }
+        PinStaticIndex.Resource resource = staticIndex.find(name);
+        if (staticCache != null && staticCache.fits(precompressed.length())) {
+            PinStaticCache.Entry entry = PinStaticCache.Entry.ofResource(
+                    Files.readAllBytes(precompressed.toPath()), resource.getLastModified(), file);
+            staticCache.put(gzipName, entry);
+            sendCached(ex, entry, PinContentEncoding.GZIP);
+        } else {
+            ex.getResponseHeaders().set(PinContentEncoding.CONTENT_ENCODING, PinContentEncoding.GZIP);
+            sendFile(ex, precompressed);
+        }
+        return true;
+    }
+
+    /**
+     * @return false if key is not cached
+     */
+    private boolean sendFromCache(HttpExchange ex, String key, String encoding) throws IOException {
+        if (staticCache == null) {
+            return false;
+        }
+        PinStaticCache.Entry entry = staticCache.get(key);
+        if (entry == null) {
+            return false;
+        }
+        sendCached(ex, entry, encoding);
+        return true;
+    }
+
+    /**
+     * @param encoding for Content-Encoding, null if file is sent as it is
+     */
+    private void sendExternalFile(HttpExchange ex, String key, File file, String encoding) throws IOException {
+        long lastModified = file.lastModified();
+        if (staticCache != null && staticCache.fits(file.length())) {
+            PinStaticCache.Entry entry = PinStaticCache.Entry.ofExternalFile(Files.readAllBytes(file.toPath()),
+                    lastModified, file);
+            staticCache.put(key, entry);
+            sendCached(ex, entry, encoding);
+            return;
+        }
+        if (encoding != null) {
+            ex.getResponseHeaders().set(PinContentEncoding.CONTENT_ENCODING, encoding);
+        }
+        sendFile(ex, file);
+    }
+
+    /**
+     * @param externalFile where an external file would hide resource, null if there is no external folder
+     * @param encoding     for Content-Encoding, null if resource is sent as it is
+     */
+    private void sendClasspathResource(HttpExchange ex, String key, PinStaticIndex.Resource resource,
+            File externalFile, String encoding) throws IOException {
+        InputStream is = resource.getUrl().openStream();
+        try {
+            if (staticCache != null && staticCache.fits(resource.getSize())) {
+                PinStaticCache.Entry entry = PinStaticCache.Entry.ofResource(is.readAllBytes(),
+                        resource.getLastModified(), externalFile);
+                staticCache.put(key, entry);
+                sendCached(ex, entry, encoding);
+                return;
             }
-            if (file.exists()) {
-                return new FileInputStream(file);
+            if (encoding != null) {
+                ex.getResponseHeaders().set(PinContentEncoding.CONTENT_ENCODING, encoding);
             }
+            //small files go with Content-Length, big ones chunked
+            PinResponseBuffer responseBuffer = new PinResponseBuffer(ex, HttpURLConnection.HTTP_OK,
+                    responseBufferBytes);
+            PinUtils.copy(is, responseBuffer);
+            responseBuffer.close();
+        } finally {
+            is.close();
         }
+    }
 
-        return PinServer.class.getClassLoader().getResourceAsStream(resourceFolder + filename);
+    /**
+     * @param encoding for Content-Encoding, null if entry is sent as it is
+     */
+    private static void sendCached(HttpExchange ex, PinStaticCache.Entry entry, String encoding)
+            throws IOException {
+        Headers responseHeaders = ex.getResponseHeaders();
+        if (encoding != null) {
+            responseHeaders.set(PinContentEncoding.CONTENT_ENCODING, encoding);
+        }
+        responseHeaders.set("ETag", entry.getEtag());
+        if (entry.getLastModified() != null) {
+            responseHeaders.set("Last-Modified", entry.getLastModified());
+        }
+        if (PinStaticCache.isNotModified(ex.getRequestHeaders(), entry)) {
+            ex.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            return;
+        }
+        byte[] body = entry.getBody();
+        ex.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            ex.getResponseBody().write(body);
+        }
+    }
 
+    private static void notFound(HttpExchange ex, String filename) throws IOException {
+        byte[] body = ("File '" + filename + "' not found").getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, body.length);
+        ex.getResponseBody().write(body);
+        LOG.warn("File not found for request uri '{}'", ex.getRequestURI().getPath());
+    }
+
+    /**
+     * Sends an external file with its exact Content-Length, whatever its size, so it is never chunked.<br>
+     * The exchange body is a plain OutputStream, so there is no socket channel to transferTo: the file channel reads
+     * straight into a pooled buffer and that buffer goes to the exchange, one copy through the heap and no
+     * allocation per request
+     */
+    private static void sendFile(HttpExchange ex, File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            sendChannel(ex, file, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void sendChannel(HttpExchange ex, File file, FileChannel channel) throws IOException {
+        long size = channel.size();
+        ex.sendResponseHeaders(HttpURLConnection.HTTP_OK, size == 0 ? -1 : size);
+        if (size == 0) {
+            return;
+        }
+        OutputStream out = ex.getResponseBody();
+        byte[] buffer = PinBufferPool.shared().acquire();
+        try {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long position = 0;
+            while (position < size) {
+                byteBuffer.clear();
+                byteBuffer.limit((int) Math.min(buffer.length, size - position));
+                int read = channel.read(byteBuffer, position);
+                if (read < 0) {
+                    throw new EOFException("File '" + file + "' got shorter while it was sent");
+                }
+                out.write(buffer, 0, read);
+                position += read;
+            }
+        } finally {
+            PinBufferPool.shared().release(buffer);
+        }
+    }
+
+    PinCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return null if static precompression is disabled
+     */
+    PinStaticPrecompressor getStaticPrecompressor() {
+        return staticPrecompressor;
+    }
+
+    /**
+     * @return null if the static cache is disabled
+     */
+    PinStaticCache getStaticCache() {
+        return staticCache;
+    }
+
+    /**
+     * @return the live counters of every route currently registered
+     */
+    public List<PinRouteStats> getRouteStats() {
+        List<PinRouteStats> routeStats = new ArrayList<>();
+        if (rootAdapter != null) {
+            rootAdapter.getRoutes().forEach(route -> routeStats.add(route.getStats()));
+        }
+        adaptersByPath.values().forEach(adapter -> adapter.getRoutes().forEach(route -> routeStats.add(route.getStats())));
+        return routeStats;
+    }
+
+    /**
+     * @param method http method
+     * @param path   the path exactly as it was used in on(...)
+     * @return the live counters of that route, or null if there is no such route
+     */
+    public PinRouteStats getRouteStats(String method, String path) {
+        String fullPath = PinUtils.removeTrailingSlash(appContext + path);
+        return getRouteStats().stream()
+                .filter(stats -> stats.getMethod().equals(method) && stats.getPath().equals(fullPath))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * @return every worker pool routes can run in
+     */
+    public List<PinWorkerPool> getWorkerPools() {
+        List<PinWorkerPool> workerPools = new ArrayList<>();
+        workerPools.add(defaultWorkerPool);
+        workerPools.addAll(workerPoolsByName.values());
+        return workerPools;
     }
 
     public PinServer start() {
         String protocol = httpServer.getClass().getSimpleName().equals("HttpsServerImpl") ? "https" : " http";
         LOG.debug("Starting as {}://localhost:{}{}", protocol, port, appContext);
+        if (staticPrecompressor != null) {
+            staticPrecompressor.start(mimeTypeByExtension);
+        }
+        if (warmupIterations > 0) {
+            warmUp();
+        }
         httpServer.start();
         LOG.info("Started as {}://localhost:{}{}", protocol, port, appContext);
         return this;
     }
 
+    void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+
+    /**
+     * Runs every warmup request through the adapter of its route, the same code a real request runs, so the JIT
+     * compiles it before the first client arrives. Requests run one at a time and wait for their response.<br>
+     * Stats are reset afterwards, so they only count real requests
+     */
+    private void warmUp() {
+        long startNanos = System.nanoTime();
+        int requests = 0;
+        try {
+            for (int iteration = 0; iteration < warmupIterations; iteration++) {
+                for (Map.Entry<String, List<PinWarmupRequest>> entry : warmupRequestsByRoute.entrySet()) {
+                    String method = entry.getKey().substring(0, entry.getKey().indexOf(' '));
+                    String fullPath = entry.getKey().substring(method.length() + 1);
+                    PinAdapter pinAdapter = rootAdapter != null ? rootAdapter
+                            : adaptersByPath.get(PinUtils.maximalPathValidAsContext(fullPath));
+                    for (PinWarmupRequest warmupRequest : entry.getValue()) {
+                        PinWarmupExchange warmupExchange = new PinWarmupExchange(method, warmupRequest, appContext);
+                        pinAdapter.handle(warmupExchange);
+                        if (!warmupExchange.awaitClosed(WARMUP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                            LOG.warn("Warmup request {} '{}' did not answer in {} seconds, warmup stopped", method,
+                                    warmupExchange.getRequestURI(), WARMUP_TIMEOUT_SECONDS);
+                            return;
+                        }
+                        requests++;
+                    }
+                }
+            }
+            //stats are recorded right after the exchange is closed, wait for them before the reset
+            long idleDeadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_TIMEOUT_SECONDS);
+            while (inFlightTracker.getInFlight() > 0 && System.nanoTime() < idleDeadlineNanos) {
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Warmup failed, starting anyway", e);
+        } finally {
+            getRouteStats().forEach(PinRouteStats::reset);
+            getWorkerPools().forEach(PinWorkerPool::resetStats);
+            LOG.info("Warmed up with {} requests in {} ms", requests,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * Answer of the readiness route, the priority lane is left out because it only runs quick routes
+     *
+     * @param maxWaitNanos wait a request can take while the server is still ready
+     * @return 200 "ready", or 503 with the saturated worker pools
+     */
+    PinResponse readiness(long maxWaitNanos) {
+        StringBuilder saturated = new StringBuilder();
+        for (PinWorkerPool workerPool : getWorkerPools()) {
+            if (!PinWorkerPool.PRIORITY_NAME.equals(workerPool.getName()) && workerPool.isSaturated(maxWaitNanos)) {
+                saturated.append(saturated.length() == 0 ? "saturated " : ", ").append(workerPool.getName())
+                        .append(" waiting ").append(workerPool.getRecentWaitMillis()).append(" ms");
+            }
+        }
+        if (saturated.length() == 0) {
+            return PinResponse.ok("ready");
+        }
+        return new PinResponse(HttpURLConnection.HTTP_UNAVAILABLE, saturated.toString());
+    }
+
+    /**
+     * Drains and stops, see drain(seconds)
+     */
     public PinServer stop(int seconds) {
+        drain(seconds);
+        return this;
+    }
+
+    /**
+     * Stops the server without cutting requests off, if they finish in time:<br>
+     * stops accepting connections, answers 503 to new requests in open connections, closes streams like SSE,
+     * waits for running requests to finish, and then closes every connection and shuts down the executors Pin
+     * created
+     *
+     * @param seconds maximum time to wait for running requests
+     * @return what was cut off
+     */
+    public PinDrainReport drain(int seconds) {
         String protocol = httpServer.getClass().getSimpleName().equals("HttpsServerImpl") ? "https" : " http";
         LOG.debug("Stopping {}://localhost:{}{} in about {} seconds", protocol, port, appContext, seconds);
-        httpServer.stop(seconds);
-        LOG.info("Stopped {}://localhost:{}{}", protocol, port, appContext);
-        return this;
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(seconds);
+        inFlightTracker.startDraining();
+        int openStreamsClosed = inFlightTracker.closeOpenStreams();
+        //HttpServer.stop closes the listener right away, and then blocks until its own exchanges end or time is over
+        Thread stopper = new Thread(() -> httpServer.stop(seconds), "pin-stop");
+        stopper.start();
+        int requestsCutOff;
+        try {
+            requestsCutOff = inFlightTracker.awaitIdle(deadlineNanos);
+            stopper.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            requestsCutOff = inFlightTracker.getInFlight();
+        }
+        //the I/O executor of boundedExecutor, any other executor given to the HttpServer is wrapped by PinWorkerPool
+        if (httpServer.getExecutor() instanceof ExecutorService) {
+            ((ExecutorService) httpServer.getExecutor()).shutdown();
+        }
+        defaultWorkerPool.shutdown();
+        workerPoolsByName.values().forEach(PinWorkerPool::shutdown);
+        //shared by every server, its thread only ends once no other server has deadlines in it
+        PinTimerWheel.shared().stop();
+        if (staticPrecompressor != null) {
+            staticPrecompressor.close();
+        }
+        PinDrainReport report = new PinDrainReport(requestsCutOff, openStreamsClosed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        if (report.isClean()) {
+            LOG.info("Stopped {}://localhost:{}{} {}", protocol, port, appContext, report);
+        } else {
+            LOG.warn("Stopped {}://localhost:{}{} cutting requests off {}", protocol, port, appContext, report);
+        }
+        return report;
     }
 
     public HttpServer raw() {
@@ -234,7 +851,7 @@ public class PinServer {
     }
 
     private String fromFileName(String filename) {
-        String fileExtension = filename.replaceAll("^.*\\.(.*)$", "$1");
+        String fileExtension = filename.substring(filename.lastIndexOf('.') + 1);
         return mimeTypeByExtension.getOrDefault(fileExtension, "application/octet-stream");
     }
 }
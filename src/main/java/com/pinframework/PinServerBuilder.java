@@ -3,8 +3,13 @@ package com.pinframework;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,8 +40,37 @@ public class PinServerBuilder {
     private String appContext = "";
     private boolean webjarsSupportEnabled = true;
     private String externalFolder = null;
-    private Executor executor = Executors.newFixedThreadPool(10);
+    private Executor executor = null; //if not set a FixedThreadPool with 10 threads is created in build()
+    private boolean virtualThreads = false;
+    private int boundedThreads = 0;
+    private int boundedQueueCapacity = 0;
+    private PinRejectionPolicy rejectionPolicy = PinRejectionPolicy.SERVICE_UNAVAILABLE;
+    private int retryAfterSeconds = 1;
+    /**
+     * name to {threads, queueCapacity}
+     */
+    private final Map<String, int[]> workerPoolSizesByName = new LinkedHashMap<>();
+    private int priorityLaneThreads = 1;
+    private int priorityLaneQueueCapacity = 16;
+    private boolean priorityLaneSet = false;
+    private PinFairKey fairKey = null;
+    private int fairQueueCapacity = 0;
+    private final Map<String, Integer> fairWeightsByKey = new HashMap<>();
+    private long deadlineMillis = 0;
     private boolean httpsSupportEnabled = false;
+    private boolean singleContextEnabled = false;
+    private String metricsPath = null;
+    private String readinessPath = null;
+    private int warmupIterations = 0;
+    private int responseBufferBytes = PinAdapter.DEFAULT_RESPONSE_BUFFER_BYTES;
+    private long bodyBudgetBytes = 0;
+    private long staticCacheBytes = 0;
+    private int staticCacheMaxEntryBytes = 0;
+    private boolean staticPrecompression = false;
+    private int compressionMinBytes = PinCompression.DEFAULT_MIN_BYTES;
+    private boolean compressionEnabled = false;
+    private long maxBodyBytes = 0;
+    private long readinessMaxWaitMillis = 0;
     private PinRender defaultRender = null; //if not set will be initialized before invoking the PinServer constructor
     private Gson gson = null;//if not set will be initialized before invoking the PinServer constructor using PinGsonBuilderFactory
     // TODO: incluir un authenticator
@@ -134,7 +168,8 @@ public class PinServerBuilder {
     }
 
     /**
-     * All HTTP requests are handled in tasks given to the executor.<br>
+     * All HTTP requests are handled in tasks given to the executor. It is not shut down when the server stops, only
+     * executors created by Pin are<br>
      * Default a FixedThreadPool with 10 threads
      *
      * @param executor
@@ -145,6 +180,292 @@ public class PinServerBuilder {
         return this;
     }
 
+    /**
+     * Every HTTP request is handled in its own virtual thread, so thousands of handlers can block on slow calls
+     * without a huge pool of platform threads.<br>
+     * Needs Java 21 or newer at runtime, otherwise build() throws a PinInitializationException.
+     * When enabled, the executor set with setExecutor is ignored<br>
+     * Default false
+     *
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder virtualThreads() {
+        this.virtualThreads = true;
+        return this;
+    }
+
+    /**
+     * Handlers run in a pool of threads with a queue of limited size, and Pin answers 503 right away when the queue
+     * is full, instead of letting requests pile up until every client times out.<br>
+     * A few I/O threads, one per processor, read the request and find its route, so the rejection happens before any
+     * handler code runs, and the thread that accepts connections never waits for a slow client. When enabled, the
+     * executor set with setExecutor is ignored<br>
+     * Default not bounded, every request is given to the executor
+     *
+     * @param threads       handler threads
+     * @param queueCapacity requests waiting for a thread before the next one is rejected
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder boundedExecutor(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            LOG.error("Bounded executor needs at least one thread and a queue capacity of at least one");
+            throw new PinInitializationException("Invalid bounded executor " + threads + " threads, " + queueCapacity
+                    + " queue capacity. Both must be 1 or more");
+        }
+        this.boundedThreads = threads;
+        this.boundedQueueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Declares a worker pool with its own threads and bounded queue. Routes registered with
+     * PinRouteOptions.workerPool(name) run there, so a slow group of routes can not starve the others.<br>
+     * When its queue is full the rejection policy applies, as with boundedExecutor<br>
+     * Default none, every route runs in the default pool
+     *
+     * @param name          the name routes use, "default" and "priority" are taken
+     * @param threads       handler threads
+     * @param queueCapacity requests waiting for a thread before the next one is rejected
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder workerPool(String name, int threads, int queueCapacity) {
+        if (name == null || name.trim().isEmpty() || PinWorkerPool.DEFAULT_NAME.equals(name)
+                || PinWorkerPool.PRIORITY_NAME.equals(name)) {
+            LOG.error("Worker pool name can not be null, empty, '{}' or '{}'", PinWorkerPool.DEFAULT_NAME,
+                    PinWorkerPool.PRIORITY_NAME);
+            throw new PinInitializationException("Invalid worker pool name '" + name + "'");
+        }
+        if (threads < 1 || queueCapacity < 1) {
+            LOG.error("Worker pool needs at least one thread and a queue capacity of at least one");
+            throw new PinInitializationException("Invalid worker pool '" + name + "' " + threads + " threads, "
+                    + queueCapacity + " queue capacity. Both must be 1 or more");
+        }
+        workerPoolSizesByName.put(name, new int[] { threads, queueCapacity });
+        return this;
+    }
+
+    /**
+     * Size of the priority lane, the worker pool of routes registered with PinRouteOptions.priority(HIGH). Its
+     * threads are started on the first HIGH request, and its stats are those of the worker pool "priority".<br>
+     * The lane exists only with boundedExecutor, without it HIGH routes are rejected when registered<br>
+     * Default 1 thread, queue capacity 16
+     *
+     * @param threads       handler threads
+     * @param queueCapacity requests waiting for a thread before the next one is rejected
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder priorityLane(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            LOG.error("Priority lane needs at least one thread and a queue capacity of at least one");
+            throw new PinInitializationException("Invalid priority lane " + threads + " threads, " + queueCapacity
+                    + " queue capacity. Both must be 1 or more");
+        }
+        this.priorityLaneThreads = threads;
+        this.priorityLaneQueueCapacity = queueCapacity;
+        this.priorityLaneSet = true;
+        return this;
+    }
+
+    /**
+     * What to do with a request when the bounded executor or a worker pool queue is full<br>
+     * Default SERVICE_UNAVAILABLE
+     *
+     * @param rejectionPolicy
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder rejectionPolicy(PinRejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+        return this;
+    }
+
+    /**
+     * Retry-After header sent with 503 responses when a request is rejected<br>
+     * Default 1
+     *
+     * @param retryAfterSeconds
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder retryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    /**
+     * Requests waiting in the bounded executor and in every worker pool are queued by key, each key with its own
+     * queue, and free threads take turns among keys. A client sending a burst only makes its own requests wait, and
+     * when its queue is full only its requests get a 503.<br>
+     * Requests for static files share the queue of requests without key. Needs boundedExecutor or a workerPool<br>
+     * Default none, requests wait in arrival order
+     *
+     * @param fairKey             tells the key of each request, see PinFairKey.byHeader, byPathParam and byClientIp
+     * @param perKeyQueueCapacity requests of one key waiting for a thread before the next one is rejected
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder fairQueuing(PinFairKey fairKey, int perKeyQueueCapacity) {
+        if (fairKey == null || perKeyQueueCapacity < 1) {
+            LOG.error("Fair queuing needs a key and a queue capacity of at least one");
+            throw new PinInitializationException("Invalid fair queuing " + fairKey + ", " + perKeyQueueCapacity
+                    + " queue capacity. Key can not be null and capacity must be 1 or more");
+        }
+        this.fairKey = fairKey;
+        this.fairQueueCapacity = perKeyQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Requests of key run weight times per turn when fair queuing is on, so a bigger tenant gets a bigger share of
+     * the threads when everybody is waiting<br>
+     * Default 1 for every key
+     *
+     * @param key    a value returned by the fair queuing key
+     * @param weight requests per turn
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder fairQueuingWeight(String key, int weight) {
+        if (key == null || weight < 1) {
+            LOG.error("Fair queuing weight needs a key and a weight of at least one");
+            throw new PinInitializationException(
+                    "Invalid fair queuing weight " + weight + " for key '" + key + "'. Weight must be 1 or more");
+        }
+        fairWeightsByKey.put(key, weight);
+        return this;
+    }
+
+    /**
+     * Responses and static files up to this size are held in memory and sent with an exact Content-Length, bigger
+     * ones go chunked as they are written. Use 0 to always send chunked<br>
+     * Default 8192
+     *
+     * @param responseBufferBytes
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder responseBufferBytes(int responseBufferBytes) {
+        if (responseBufferBytes < 0) {
+            LOG.error("Response buffer bytes can not be negative");
+            throw new PinInitializationException("Invalid responseBufferBytes " + responseBufferBytes
+                    + ". Valid responseBufferBytes are 0 or positive");
+        }
+        this.responseBufferBytes = responseBufferBytes;
+        return this;
+    }
+
+    /**
+     * Times every warmup request declared with PinRouteOptions.warmupRequest runs in PinServer.start(), in memory,
+     * before the server accepts connections. Routing, handlers, Gson and renders get compiled by the JIT before
+     * the first real request, so the server joins a load balancer already fast. Route and worker pool stats are
+     * reset afterwards<br>
+     * Default 0, no warmup
+     *
+     * @param warmupIterations
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder warmupIterations(int warmupIterations) {
+        if (warmupIterations < 0) {
+            LOG.error("Warmup iterations can not be negative");
+            throw new PinInitializationException(
+                    "Invalid warmupIterations " + warmupIterations + ". Valid warmupIterations are 0 or positive");
+        }
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    /**
+     * Bytes of request bodies every route lets in at the same time, counted with Content-Length before the
+     * request is queued, so many big uploads at once get a quick 503 instead of filling the heap. Bodies bigger
+     * than maxBodyBytes get a 413 without being read, chunked bodies reserve maxBodyBytes and are cut there.<br>
+     * Routes can add a budget of their own with PinRouteOptions.bodyBudget. Static files are not counted<br>
+     * Default none, bodies are not limited
+     *
+     * @param budgetBytes  body bytes of requests running at the same time
+     * @param maxBodyBytes biggest body of a single request
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder bodyBudget(long budgetBytes, long maxBodyBytes) {
+        if (maxBodyBytes < 1 || budgetBytes < maxBodyBytes) {
+            LOG.error("Body budget needs a max body of at least one byte, and at least max body bytes of budget");
+            throw new PinInitializationException("Invalid body budget " + budgetBytes + " bytes, max body "
+                    + maxBodyBytes + " bytes. maxBodyBytes must be 1 or more, and budgetBytes at least maxBodyBytes");
+        }
+        this.bodyBudgetBytes = budgetBytes;
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    /**
+     * Static files and webjar resources up to maxEntryBytes are kept in memory, up to maxBytes in total, least
+     * recently used first out. They are sent with a strong ETag and Last-Modified, and requests with a matching
+     * If-None-Match or If-Modified-Since get a 304 without touching the disk or the classloader. Files from the
+     * external folder are looked at again at most once per second, so changes take up to a second to be seen.<br>
+     * The memory is taken from the heap, 32 MB in total and 1 MB per file is a good start. Use 0 for both to
+     * disable it<br>
+     * Default off, files are read on every request
+     *
+     * @param maxBytes      bytes of every cached file together
+     * @param maxEntryBytes biggest file cached
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder staticCache(long maxBytes, int maxEntryBytes) {
+        if (maxEntryBytes < 0 || maxBytes < maxEntryBytes) {
+            LOG.error("Static cache sizes can not be negative, and maxBytes must be at least maxEntryBytes");
+            throw new PinInitializationException("Invalid static cache " + maxBytes + " bytes, max entry "
+                    + maxEntryBytes + " bytes. maxEntryBytes must be 0 or more, and maxBytes at least maxEntryBytes");
+        }
+        this.staticCacheBytes = maxBytes;
+        this.staticCacheMaxEntryBytes = maxEntryBytes;
+        return this;
+    }
+
+    /**
+     * Static files and webjars are always sent gzipped to clients that accept it when there is a .gz file next to
+     * them. With this, the compressible classpath resources without one, text, javascript, json, xml and svg of
+     * 1 KB or more, are also gzipped in the background when the server starts, into a temporary folder deleted
+     * on stop. Mime types registered with PinServer.registerMimeType before start count, later ones do not.
+     * Resources are sent as they are until their turn comes.<br>
+     * Default false
+     *
+     * @param staticPrecompression
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder staticPrecompression(boolean staticPrecompression) {
+        this.staticPrecompression = staticPrecompression;
+        return this;
+    }
+
+    /**
+     * Compresses route responses on the fly, gzip or deflate as the client prefers, when their content type is
+     * text like, json included, and they are bigger than minBytes. Smaller ones are sent as they are, compressing
+     * them costs more than it saves. Routes can turn it on or off with PinRouteOptions.compression. Metrics show
+     * the bytes before and after, and the time spent compressing<br>
+     * Default off, routes that turn it on use 1024 bytes as minimum
+     *
+     * @param minBytes responses up to this size are not compressed
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder compression(int minBytes) {
+        if (minBytes < 0) {
+            LOG.error("Compression min bytes can not be negative");
+            throw new PinInitializationException(
+                    "Invalid compression minBytes " + minBytes + ". Valid minBytes are 0 or positive");
+        }
+        this.compressionMinBytes = minBytes;
+        this.compressionEnabled = true;
+        return this;
+    }
+
+    /**
+     * Time every route has to answer, counted from the request arrival. When it is over the handler thread is
+     * interrupted, or the future cancelled, and the client gets a 504 through the route render.<br>
+     * Routes can set their own with PinRouteOptions.deadlineMillis<br>
+     * Default 0, no deadline
+     *
+     * @param deadlineMillis
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder deadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+        return this;
+    }
+
     /**
      * Enable https support<br>
      * Default false
@@ -157,6 +478,55 @@ public class PinServerBuilder {
         return this;
     }
 
+    /**
+     * If true Pin registers only one context in the underlying HttpServer, at appContext, and dispatches every
+     * request (routes, webjars and static files) with its own route table.<br>
+     * If false every route prefix gets its own HttpServer context, and the HttpServer looks for the longest matching
+     * one before Pin starts routing<br>
+     * Default false
+     *
+     * @param singleContextEnabled
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder singleContextEnabled(boolean singleContextEnabled) {
+        this.singleContextEnabled = singleContextEnabled;
+        return this;
+    }
+
+    /**
+     * If not null, a GET route in this path renders server and route stats in Prometheus text format<br>
+     * Something like "metrics" will expose them in localhost:9999/app-context/metrics<br>
+     * Default null, no metrics route
+     *
+     * @param metricsPath
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder metricsPath(String metricsPath) {
+        this.metricsPath = metricsPath;
+        return this;
+    }
+
+    /**
+     * If not null, a GET route in this path answers 200 while requests get a thread in time, and 503 when requests
+     * of some worker pool wait longer than maxWaitMillis, so a load balancer sends traffic elsewhere before the node
+     * is overwhelmed. With boundedExecutor it runs in the priority lane, so it never waits itself<br>
+     * Default null, no readiness route
+     *
+     * @param readinessPath
+     * @param maxWaitMillis time a request can wait for a thread while the server is still ready
+     * @return this instance so you can keep building
+     */
+    public PinServerBuilder readinessPath(String readinessPath, long maxWaitMillis) {
+        if (maxWaitMillis < 1) {
+            LOG.error("Readiness needs a max wait of at least one millisecond");
+            throw new PinInitializationException(
+                    "Invalid readiness maxWaitMillis " + maxWaitMillis + ". Valid maxWaitMillis are 1 or more");
+        }
+        this.readinessPath = readinessPath;
+        this.readinessMaxWaitMillis = maxWaitMillis;
+        return this;
+    }
+
     /**
      * The render that will be used if none is specified. <br>
      * Default an instance of PinRenderJson
@@ -181,6 +551,16 @@ public class PinServerBuilder {
         return this;
     }
 
+    /**
+     * @return null if fair queuing is off
+     */
+    private PinFairScheduler newFairScheduler(Executor poolExecutor, int threads) {
+        if (fairKey == null) {
+            return null;
+        }
+        return new PinFairScheduler(poolExecutor, threads, fairQueueCapacity, new HashMap<>(fairWeightsByKey), fairKey);
+    }
+
     public PinServer build() {
         this.appContext = appContext == null || appContext.trim().length() == 0 ? "/"
                 : "/" + appContext.replaceAll("/", "") + "/";
@@ -219,6 +599,32 @@ public class PinServerBuilder {
             }
         }
 
+        if (virtualThreads && !PinVirtualThreads.isSupported()) {
+            throw new PinInitializationException("Virtual threads need Java 21 or newer, running on Java "
+                    + Runtime.version().feature());
+        }
+        if (virtualThreads && boundedQueueCapacity > 0) {
+            throw new PinInitializationException("Virtual threads and a bounded executor can not be used together");
+        }
+        if (deadlineMillis < 0) {
+            throw new PinInitializationException(
+                    "Invalid deadlineMillis " + deadlineMillis + ". Valid deadlineMillis are 0 or positive");
+        }
+        if (rejectionPolicy == null) {
+            throw new PinInitializationException("Invalid rejectionPolicy null");
+        }
+        if (retryAfterSeconds < 0) {
+            throw new PinInitializationException(
+                    "Invalid retryAfterSeconds " + retryAfterSeconds + ". Valid retryAfterSeconds are 0 or positive");
+        }
+
+        if (priorityLaneSet && boundedQueueCapacity == 0) {
+            throw new PinInitializationException("Priority lane needs boundedExecutor");
+        }
+        if (fairKey != null && boundedQueueCapacity == 0 && workerPoolSizesByName.isEmpty()) {
+            throw new PinInitializationException("Fair queuing needs boundedExecutor or a workerPool");
+        }
+
         InetSocketAddress address = new InetSocketAddress(port);
         HttpServer httpServer;
         try {
@@ -227,7 +633,35 @@ public class PinServerBuilder {
             throw new PinInitializationException(
                     "Can not create server", e);
         }
-        httpServer.setExecutor(executor);
+        PinWorkerPool defaultWorkerPool;
+        if (boundedQueueCapacity > 0) {
+            ThreadPoolExecutor boundedExecutor = PinWorkerPool.newBoundedExecutor(PinWorkerPool.DEFAULT_NAME,
+                    boundedThreads, boundedQueueCapacity);
+            defaultWorkerPool = new PinWorkerPool(PinWorkerPool.DEFAULT_NAME, boundedExecutor, true, true,
+                    rejectionPolicy, retryAfterSeconds, newFairScheduler(boundedExecutor, boundedThreads));
+            //I/O threads just read and route, PinWorkerPool hands the request to a handler thread
+            httpServer.setExecutor(PinWorkerPool.newIoExecutor());
+        } else {
+            boolean ownedExecutor = virtualThreads || executor == null;
+            Executor serverExecutor = virtualThreads ? PinVirtualThreads.newExecutor()
+                    : executor != null ? executor : Executors.newFixedThreadPool(10);
+            defaultWorkerPool = new PinWorkerPool(PinWorkerPool.DEFAULT_NAME, serverExecutor, false, ownedExecutor,
+                    rejectionPolicy, retryAfterSeconds);
+            httpServer.setExecutor(defaultWorkerPool.timedExecutor());
+        }
+        Map<String, PinWorkerPool> workerPoolsByName = new LinkedHashMap<>();
+        if (boundedQueueCapacity > 0) {
+            //never fair queued, HIGH routes must not wait for other keys
+            workerPoolsByName.put(PinWorkerPool.PRIORITY_NAME, new PinWorkerPool(PinWorkerPool.PRIORITY_NAME,
+                    PinWorkerPool.newBoundedExecutor(PinWorkerPool.PRIORITY_NAME, priorityLaneThreads,
+                            priorityLaneQueueCapacity),
+                    true, true, rejectionPolicy, retryAfterSeconds));
+        }
+        workerPoolSizesByName.forEach((name, sizes) -> {
+            ThreadPoolExecutor poolExecutor = PinWorkerPool.newBoundedExecutor(name, sizes[0], sizes[1]);
+            workerPoolsByName.put(name, new PinWorkerPool(name, poolExecutor, true, true, rejectionPolicy,
+                    retryAfterSeconds, newFairScheduler(poolExecutor, sizes[0])));
+        });
 
         if (gson == null) {
             gson = PinGsonBuilderFactory.make().create();
@@ -236,9 +670,28 @@ public class PinServerBuilder {
             defaultRender = new PinRenderJson(gson);
         }
 
+        PinStaticIndex staticIndex = webjarsSupportEnabled
+                ? PinStaticIndex.build(PinServer.class.getClassLoader(), PinServer.STATIC_FOLDER,
+                        PinServer.WEBJARS_FOLDER)
+                : PinStaticIndex.build(PinServer.class.getClassLoader(), PinServer.STATIC_FOLDER);
+        PinStaticPrecompressor staticPrecompressor = null;
+        if (staticPrecompression) {
+            try {
+                staticPrecompressor = new PinStaticPrecompressor(staticIndex);
+            } catch (IOException e) {
+                throw new PinInitializationException("Can not create folder for precompressed static files", e);
+            }
+        }
+
         PinServer pinServer = new PinServer(httpServer, restrictedCharset, appContext, webjarsSupportEnabled, externalFolderCanonical,
-                defaultRender, gson);
+                defaultRender, gson, singleContextEnabled, defaultWorkerPool,
+                workerPoolsByName, deadlineMillis,
+                bodyBudgetBytes == 0 ? null : new PinBodyBudget(bodyBudgetBytes, maxBodyBytes, null),
+                responseBufferBytes,
+                staticCacheBytes == 0 ? null : new PinStaticCache(staticCacheBytes, staticCacheMaxEntryBytes),
+                staticIndex, staticPrecompressor, new PinCompression(compressionMinBytes, compressionEnabled));
 
+        pinServer.setWarmupIterations(warmupIterations);
         pinServer.registerRender(defaultRender.getType().equals(PinRenderType.JSON) ? defaultRender : new PinRenderJson(gson));
         pinServer.registerRender(new PinRenderText());
         pinServer.registerRender(new PinRenderHtml());
@@ -246,6 +699,17 @@ public class PinServerBuilder {
         pinServer.registerRender(new PinRenderNull());
         pinServer.registerRender(new PinRenderFileDownload());
 
+        if (metricsPath != null) {
+            pinServer.on("GET", metricsPath, ex -> PinResponse.ok(pinServer), new PinPrometheusRender());
+        }
+        if (readinessPath != null) {
+            long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(readinessMaxWaitMillis);
+            PinRouteOptions readinessOptions = new PinRouteOptions()
+                    .priority(boundedQueueCapacity > 0 ? PinRoutePriority.HIGH : PinRoutePriority.NORMAL);
+            pinServer.on("GET", readinessPath, ex -> pinServer.readiness(maxWaitNanos),
+                    pinServer.findRender(PinRenderType.TEXT), readinessOptions);
+        }
+
         return pinServer;
     }
 
@@ -0,0 +1,278 @@
+package com.pinframework;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * Static files and webjar resources kept in memory, with a strong ETag and Last-Modified, so repeated requests
+ * neither touch the disk nor the classloader, and browsers that already have them get a 304.<br>
+ * Bounded by total bytes, the least recently used entries go first. Entries that depend on the external folder
+ * look at the file again at most once per second, and are dropped when its modification time or length changed
+ */
+final class PinStaticCache {
+
+    static final long RECHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    /**
+     * Guarded by this, in access order
+     */
+    private final LinkedHashMap<String, Entry> entriesByKey = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxBytes      body bytes of every entry together
+     * @param maxEntryBytes bigger files are not cached
+     */
+    PinStaticCache(long maxBytes, int maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * @return true if a body of that length can be cached, a negative length is unknown and can not
+     */
+    boolean fits(long length) {
+        return length >= 0 && length <= maxEntryBytes;
+    }
+
+    /**
+     * @return the entry, or null if it is not cached or its external file changed
+     */
+    Entry get(String key) {
+        Entry entry = find(key);
+        if (entry == null || entry.missing) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Does not count as a hit or a miss, the request goes on to get the entry it needs
+     *
+     * @return true if key is known to have nothing to send, see Entry.missing
+     */
+    boolean isMissing(String key) {
+        Entry entry = find(key);
+        return entry != null && entry.missing;
+    }
+
+    private Entry find(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entriesByKey.get(key);
+        }
+        if (entry != null && !entry.isStillValid()) {
+            remove(key, entry);
+            entry = null;
+        }
+        return entry;
+    }
+
+    synchronized void put(String key, Entry entry) {
+        if (!fits(entry.body.length)) {
+            return;
+        }
+        Entry old = entriesByKey.put(key, entry);
+        if (old != null) {
+            bytes -= old.body.length;
+        }
+        bytes += entry.body.length;
+        Iterator<Entry> eldest = entriesByKey.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().body.length;
+            eldest.remove();
+        }
+    }
+
+    private synchronized void remove(String key, Entry entry) {
+        if (entriesByKey.remove(key, entry)) {
+            bytes -= entry.body.length;
+        }
+    }
+
+    /**
+     * @return requests answered from memory
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return requests that had to look for the file
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return body bytes held
+     */
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @param lastModifiedMillis 0 if unknown
+     * @return the value for a Last-Modified header
+     */
+    static String httpDate(long lastModifiedMillis) {
+        return HTTP_DATE.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastModifiedMillis), ZoneOffset.UTC));
+    }
+
+    /**
+     * If-None-Match wins over If-Modified-Since, as the RFC says. Any ETag in If-None-Match, weak or not, or *,
+     * is enough
+     *
+     * @return true if the client already has entry and should get a 304
+     */
+    static boolean isNotModified(Headers requestHeaders, Entry entry) {
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String etag : ifNoneMatch.split(",")) {
+                etag = etag.trim();
+                if (etag.startsWith("W/")) {
+                    etag = etag.substring(2);
+                }
+                if (etag.equals("*") || etag.equals(entry.etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null && entry.lastModifiedMillis != 0) {
+            try {
+                long sinceMillis = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli();
+                //http dates have no millis
+                return entry.lastModifiedMillis / 1000 * 1000 <= sinceMillis;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    static final class Entry {
+        private final byte[] body;
+        private final String etag;
+        private final long lastModifiedMillis;
+        private final String lastModified;
+        /**
+         * file that would change this entry, null if nothing can
+         */
+        private final File file;
+        private final long fileLastModified;
+        private final long fileLength;
+        /**
+         * true for the entries that only remember there is nothing under their key
+         */
+        private final boolean missing;
+        private volatile long checkedNanos;
+
+        private Entry(byte[] body, long lastModifiedMillis, File file, long fileLastModified, long fileLength,
+                boolean missing) {
+            this.body = body;
+            this.etag = missing ? null : etagOf(body);
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.lastModified = lastModifiedMillis == 0 ? null : httpDate(lastModifiedMillis);
+            this.file = file;
+            this.fileLastModified = fileLastModified;
+            this.fileLength = fileLength;
+            this.missing = missing;
+            this.checkedNanos = System.nanoTime();
+        }
+
+        /**
+         * @param body               the whole file
+         * @param lastModifiedMillis of file, taken before reading it, so a change while reading is noticed later
+         * @param file               from the external folder
+         */
+        static Entry ofExternalFile(byte[] body, long lastModifiedMillis, File file) {
+            return new Entry(body, lastModifiedMillis, file, lastModifiedMillis, body.length, false);
+        }
+
+        /**
+         * @param body               the whole resource
+         * @param lastModifiedMillis 0 if unknown
+         * @param externalFile       where an external file would hide this resource, it is dropped when that file
+         *                           shows up. null if there is no external folder
+         */
+        static Entry ofResource(byte[] body, long lastModifiedMillis, File externalFile) {
+            //a missing file has 0 for both
+            return new Entry(body, lastModifiedMillis, externalFile, 0, 0, false);
+        }
+
+        /**
+         * Remembers there is nothing under a key, like a gzip variant, so it is not looked for on every request.
+         * It holds no bytes and only exists next to an entry that does
+         *
+         * @param file that would give the key something to send when it shows up, null if nothing can
+         */
+        static Entry missing(File file) {
+            return new Entry(new byte[0], 0, file, 0, 0, true);
+        }
+
+        private boolean isStillValid() {
+            if (file == null) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (now - checkedNanos < RECHECK_NANOS) {
+                return true;
+            }
+            checkedNanos = now;
+            return file.lastModified() == fileLastModified && file.length() == fileLength;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return null if unknown
+         */
+        String getLastModified() {
+            return lastModified;
+        }
+
+        private static String etagOf(byte[] body) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+                byte[] hash = new byte[18];
+                System.arraycopy(digest, 0, hash, 0, hash.length);
+                return '"' + new String(Base64.getUrlEncoder().encode(hash), StandardCharsets.US_ASCII) + '"';
+            } catch (NoSuchAlgorithmException e) {
+                //every JVM has SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.pinframework;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Every classpath resource under the static folders, found once when the server is built, so serving a resource,
+ * or answering a 404 for one that does not exist, is a single map lookup instead of a classloader search.<br>
+ * Folders in directories and jars are indexed, jars with no directory entries too. If some classpath root can not
+ * be listed, a custom classloader protocol for instance, the index is incomplete and names it does not have are still
+ * asked to the classloader.
+ * Resources added to the classpath after the server was built are not seen
+ */
+final class PinStaticIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PinStaticIndex.class);
+
+    private final ClassLoader classLoader;
+    private final Map<String, Resource> resourcesByName;
+    private final boolean complete;
+
+    private PinStaticIndex(ClassLoader classLoader, Map<String, Resource> resourcesByName, boolean complete) {
+        this.classLoader = classLoader;
+        this.resourcesByName = resourcesByName;
+        this.complete = complete;
+    }
+
+    /**
+     * @param folders resource names of the folders, like static/, with or without the trailing /
+     */
+    static PinStaticIndex build(ClassLoader classLoader, String... folders) {
+        Map<String, Resource> resourcesByName = new HashMap<>();
+        boolean complete = true;
+        Set<String> jarRoots;
+        try {
+            jarRoots = jarRoots(classLoader);
+        } catch (IOException e) {
+            LOG.warn("Error listing the classpath jars, static folders will be searched on every request", e);
+            jarRoots = Collections.emptySet();
+            complete = false;
+        }
+        for (String folder : folders) {
+            String prefix = folder.endsWith("/") ? folder : folder + "/";
+            try {
+                Set<String> indexedJars = new HashSet<>();
+                Enumeration<URL> roots = classLoader.getResources(prefix);
+                while (roots.hasMoreElements()) {
+                    complete &= indexRoot(roots.nextElement(), prefix, resourcesByName, indexedJars);
+                }
+                //jars without directory entries, the ones shade or zip build, are not found by getResources(prefix)
+                for (String jarRoot : jarRoots) {
+                    if (indexedJars.add(jarRoot)) {
+                        indexClasspathJar(jarRoot, prefix, resourcesByName);
+                    }
+                }
+            } catch (IOException | UncheckedIOException e) {
+                LOG.warn("Error indexing static folder '{}', it will be searched on every request", folder, e);
+                complete = false;
+            }
+        }
+        LOG.debug("Indexed {} static resources", resourcesByName.size());
+        return new PinStaticIndex(classLoader, Collections.unmodifiableMap(resourcesByName), complete);
+    }
+
+    /**
+     * Jars with a manifest, plus the jars of the class path and of URLClassLoaders, for the ones without it
+     *
+     * @return jar urls, like jar:file:/app/lib/some.jar!/, in classpath order
+     */
+    private static Set<String> jarRoots(ClassLoader classLoader) throws IOException {
+        Set<String> jarRoots = new LinkedHashSet<>();
+        Enumeration<URL> manifests = classLoader.getResources(JarFile.MANIFEST_NAME);
+        while (manifests.hasMoreElements()) {
+            String jarRoot = jarRoot(manifests.nextElement());
+            if (jarRoot != null) {
+                jarRoots.add(jarRoot);
+            }
+        }
+        //parents first, they are asked first
+        List<ClassLoader> loaders = new ArrayList<>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            loaders.add(0, loader);
+        }
+        List<String> jarFiles = new ArrayList<>();
+        for (ClassLoader loader : loaders) {
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    jarFiles.add(url.toExternalForm());
+                }
+            }
+            if (loader == ClassLoader.getSystemClassLoader()) {
+                for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                    if (!entry.isEmpty()) {
+                        jarFiles.add(new File(entry).toURI().toURL().toExternalForm());
+                    }
+                }
+            }
+        }
+        for (String jarFile : jarFiles) {
+            if (jarFile.startsWith("file:") && jarFile.endsWith(".jar")) {
+                jarRoots.add("jar:" + jarFile + "!/");
+            }
+        }
+        return jarRoots;
+    }
+
+    /**
+     * A jar of the class path that can not be opened is not seen by the classloader either, so it is just skipped
+     */
+    private static void indexClasspathJar(String jarRoot, String prefix, Map<String, Resource> resourcesByName) {
+        try {
+            indexJar(new URL(jarRoot), prefix, resourcesByName);
+        } catch (IOException e) {
+            LOG.debug("Can not index classpath jar '{}'", jarRoot, e);
+        }
+    }
+
+    /**
+     * @param url a resource inside a jar
+     * @return the jar url without the entry, null if url is not inside a jar
+     */
+    private static String jarRoot(URL url) {
+        String externalForm = url.toExternalForm();
+        int separator = externalForm.lastIndexOf("!/");
+        return "jar".equals(url.getProtocol()) && separator >= 0 ? externalForm.substring(0, separator + 2) : null;
+    }
+
+    /**
+     * Roots that come first in the classpath win, like in ClassLoader.getResource
+     *
+     * @param indexedJars jar urls already indexed for prefix, root is added if it is a jar
+     * @return false if root could not be listed
+     */
+    private static boolean indexRoot(URL root, String prefix, Map<String, Resource> resourcesByName,
+            Set<String> indexedJars) throws IOException {
+        if ("file".equals(root.getProtocol())) {
+            Path folder;
+            try {
+                folder = Paths.get(root.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                LOG.warn("Can not index static folder '{}'", root, e);
+                return false;
+            }
+            Stream<Path> paths = Files.walk(folder);
+            try {
+                paths.filter(Files::isRegularFile).forEach(path -> {
+                    String name = prefix + folder.relativize(path).toString().replace(path.getFileSystem()
+                            .getSeparator(), "/");
+                    try {
+                        resourcesByName.putIfAbsent(name, new Resource(path.toUri().toURL(), Files.size(path),
+                                Files.getLastModifiedTime(path).toMillis()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                paths.close();
+            }
+            return true;
+        }
+        String jarRoot = jarRoot(root);
+        if (jarRoot == null || !indexJar(new URL(jarRoot), prefix, resourcesByName)) {
+            LOG.warn("Can not index static folder '{}', unknown protocol", root);
+            return false;
+        }
+        indexedJars.add(jarRoot);
+        return true;
+    }
+
+    /**
+     * @param jarRoot like jar:file:/app/lib/some.jar!/
+     * @return false if jarRoot is not a jar the JDK can open
+     */
+    private static boolean indexJar(URL jarRoot, String prefix, Map<String, Resource> resourcesByName)
+            throws IOException {
+        URLConnection connection = jarRoot.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            return false;
+        }
+        JarFile jarFile = ((JarURLConnection) connection).getJarFile();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                resourcesByName.putIfAbsent(entry.getName(), new Resource(new URL(jarRoot + entry.getName()),
+                        entry.getSize(), Math.max(0, entry.getTime())));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name full resource name, like static/style.css
+     * @return null if there is no such resource
+     */
+    Resource find(String name) {
+        Resource resource = resourcesByName.get(name);
+        if (resource != null || complete) {
+            return resource;
+        }
+        URL url = classLoader.getResource(name);
+        return url == null ? null : new Resource(url, -1, 0);
+    }
+
+    /**
+     * @return every resource indexed, by full name
+     */
+    Map<String, Resource> getResourcesByName() {
+        return resourcesByName;
+    }
+
+    static final class Resource {
+        private final URL url;
+        private final long size;
+        private final long lastModified;
+
+        private Resource(URL url, long size, long lastModified) {
+            this.url = url;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        URL getUrl() {
+            return url;
+        }
+
+        /**
+         * @return bytes, -1 if unknown
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * @return millis, 0 if unknown
+         */
+        long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.pinframework;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gzips the compressible classpath resources of the static index in the background, with a fork join pool of its
+ * own, into files of a temporary folder, so they can be sent compressed without compressing on every request. It
+ * starts with the server, and finds the compressible resources with the mime types registered by then.<br>
+ * Resources that already have a .gz next to them, the small ones and the ones that do not get smaller are
+ * skipped. Until a resource is done, it is just sent as it is. Files are deleted by close, or when the JVM exits
+ */
+final class PinStaticPrecompressor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PinStaticPrecompressor.class);
+    /**
+     * smaller resources fit in a packet or two anyway
+     */
+    static final int MIN_BYTES = 1024;
+    /**
+     * compressed variants must save at least a tenth
+     */
+    private static final double MAX_RATIO = 0.9;
+
+    private final PinStaticIndex staticIndex;
+    private final Path folder;
+    private final ForkJoinPool forkJoinPool;
+    private final Map<String, File> gzipByName = new ConcurrentHashMap<>();
+
+    /**
+     * @param staticIndex resources to compress, once started
+     */
+    PinStaticPrecompressor(PinStaticIndex staticIndex) throws IOException {
+        this.staticIndex = staticIndex;
+        this.folder = Files.createTempDirectory("pin-static-gz");
+        this.folder.toFile().deleteOnExit();
+        this.forkJoinPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Only the first call does anything
+     *
+     * @param mimeTypeByExtension the live map of the server, to find the compressible resources
+     */
+    void start(Map<String, String> mimeTypeByExtension) {
+        if (forkJoinPool.isShutdown()) {
+            return;
+        }
+        staticIndex.getResourcesByName().forEach((name, resource) -> {
+            String extension = name.substring(name.lastIndexOf('.') + 1);
+            if (resource.getSize() >= MIN_BYTES && staticIndex.find(name + ".gz") == null
+                    && PinContentEncoding.isCompressible(mimeTypeByExtension.get(extension))) {
+                forkJoinPool.execute(() -> compress(name, resource));
+            }
+        });
+        forkJoinPool.shutdown();
+    }
+
+    private void compress(String name, PinStaticIndex.Resource resource) {
+        try {
+            Path target = folder.resolve(name + ".gz");
+            //create the parents one by one, so deleteOnExit removes them after the files
+            Path parent = folder;
+            for (Path part : folder.relativize(target.getParent())) {
+                parent = parent.resolve(part);
+                if (parent.toFile().mkdir()) {
+                    parent.toFile().deleteOnExit();
+                }
+            }
+            target.toFile().deleteOnExit();
+            //explicit finally blocks, try-with-resources makes spotbugs see a redundant null check
+            InputStream is = resource.getUrl().openStream();
+            try {
+                OutputStream os = new GZIPOutputStream(Files.newOutputStream(target)) {
+                    {
+                        def.setLevel(Deflater.BEST_COMPRESSION);
+                    }
+                };
+                try {
+                    PinUtils.copy(is, os);
+                } finally {
+                    os.close();
+                }
+            } finally {
+                is.close();
+            }
+            if (Files.size(target) > resource.getSize() * MAX_RATIO) {
+                Files.delete(target);
+                return;
+            }
+            gzipByName.put(name, target.toFile());
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Error compressing static resource '{}', it will be sent as it is", name, e);
+        }
+    }
+
+    /**
+     * @param name full resource name, like static/app.js
+     * @return its gzip file, or null if it is not ready or it was skipped
+     */
+    File find(String name) {
+        return gzipByName.get(name);
+    }
+
+    /**
+     * @return true when every resource was compressed or skipped, find will not give anything new
+     */
+    boolean isDone() {
+        return forkJoinPool.isTerminated();
+    }
+
+    /**
+     * @return true when every resource was compressed or skipped
+     */
+    boolean awaitDone(long timeout, TimeUnit unit) throws InterruptedException {
+        return forkJoinPool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Stops compressing and deletes the files
+     */
+    void close() {
+        forkJoinPool.shutdownNow();
+        gzipByName.clear();
+        try {
+            forkJoinPool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        List<Path> paths;
+        try {
+            Stream<Path> walk = Files.walk(folder);
+            try {
+                //children before their folders
+                paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            } finally {
+                walk.close();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn("Error listing compressed static resources in '{}'", folder, e);
+            return;
+        }
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOG.warn("Error deleting compressed static resource '{}'", path, e);
+            }
+        }
+    }
+}
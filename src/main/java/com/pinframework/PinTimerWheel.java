@@ -0,0 +1,228 @@
+package com.pinframework;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timer wheel for request deadlines.<br>
+ * One daemon thread advances a tick at a time and runs the timeouts in that tick's bucket, so scheduling and
+ * cancelling are O(1) no matter how many requests are in flight. Timeouts run late by up to one tick, and
+ * cancelled ones are just marked and dropped when their bucket comes around.<br>
+ * The thread parks while the wheel holds no timeouts, and ends when the wheel is stopped and empty. The next
+ * timeout starts a new one.<br>
+ * Tasks run in the wheel thread, so they must be short and never block
+ */
+final class PinTimerWheel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PinTimerWheel.class);
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int WHEEL_SIZE = 512;
+
+    private static final PinTimerWheel SHARED = new PinTimerWheel(TICK_NANOS, WHEEL_SIZE);
+
+    private final long tickNanos;
+    private final int mask;
+    /**
+     * Only touched by the wheel thread
+     */
+    private final ArrayDeque<Timeout>[] buckets;
+    /**
+     * Timeouts in the buckets, cancelled or not. Only touched by the wheel thread
+     */
+    private int bucketed = 0;
+    /**
+     * Scheduled but not yet in a bucket, the only structure shared with other threads
+     */
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    /**
+     * true while the wheel thread parks or is not running, schedule has to wake it
+     */
+    private volatile boolean idle = true;
+    /**
+     * Guarded by this, null when there is no wheel thread
+     */
+    private Thread thread;
+    /**
+     * Guarded by this, the wheel thread ends instead of parking
+     */
+    private boolean stopping = false;
+
+    /**
+     * A scheduled task, cancel it when it is not needed anymore
+     */
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private volatile boolean cancelled = false;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    PinTimerWheel(long tickNanos, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two, not " + wheelSize);
+        }
+        this.tickNanos = tickNanos;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @return the wheel every server uses, its thread starts with the first timeout and ends when the servers stop
+     */
+    static PinTimerWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param task       runs in the wheel thread, unless cancelled first
+     * @param delayNanos from now
+     * @return the timeout, to cancel it
+     */
+    Timeout schedule(Runnable task, long delayNanos) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + delayNanos);
+        pending.add(timeout);
+        //added before reading idle, so either the wheel thread sees the timeout or it gets woken up
+        if (idle) {
+            wakeUp();
+        }
+        return timeout;
+    }
+
+    private synchronized void wakeUp() {
+        if (thread == null) {
+            thread = new Thread(this::run, "pin-timer-wheel");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Ends the wheel thread once it holds no timeouts, right away if it is parked. Timeouts scheduled meanwhile, or
+     * later, still run
+     */
+    synchronized void stop() {
+        if (thread != null) {
+            stopping = true;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * @return true if there is a wheel thread, parked or not
+     */
+    synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * @return true if the wheel thread is parked until the next timeout, not ticking
+     */
+    synchronized boolean isParked() {
+        return thread != null && idle && thread.getState() == Thread.State.WAITING;
+    }
+
+    private void run() {
+        idle = false;
+        long tick = currentTick();
+        while (true) {
+            if (bucketed == 0 && pending.isEmpty()) {
+                if (!parkWhileEmpty()) {
+                    return;
+                }
+                //nothing was in the buckets, the ticks parked can be skipped
+                tick = currentTick();
+            }
+            long tickEndNanos = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos = tickEndNanos - System.nanoTime();
+            while (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                sleepNanos = tickEndNanos - System.nanoTime();
+            }
+            transferPending(tick);
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * @return false if the wheel was stopped, the thread must end
+     */
+    private boolean parkWhileEmpty() {
+        idle = true;
+        //idle is set before looking at pending, so a timeout scheduled from now on wakes this thread up
+        while (pending.isEmpty()) {
+            synchronized (this) {
+                if (stopping && pending.isEmpty()) {
+                    stopping = false;
+                    thread = null;
+                    return false;
+                }
+            }
+            LockSupport.park(this);
+        }
+        idle = false;
+        return true;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void transferPending(long currentTick) {
+        for (Timeout timeout = pending.poll(); timeout != null; timeout = pending.poll()) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            //a bucket holds the timeouts ending before the end of its tick, late ones go in the current tick
+            long timeoutTick = Math.max((timeout.deadlineNanos - startNanos) / tickNanos, currentTick);
+            timeout.remainingRounds = (timeoutTick - currentTick) / buckets.length;
+            buckets[(int) (timeoutTick & mask)].add(timeout);
+            bucketed++;
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+                bucketed--;
+            } else if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+                bucketed--;
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Unexpected exception in timeout task", e);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+}
@@ -16,8 +16,6 @@ import java.util.stream.Collectors;
 
 public class PinUtils {
 
-    private static final int COPY_BUFFER_SIZE = 8192;
-
     private PinUtils() {
         // shup up sonar!
     }
@@ -37,10 +35,14 @@ public class PinUtils {
     }
 
     public static void copy(InputStream in, OutputStream out) throws IOException {
-        byte[] b = new byte[COPY_BUFFER_SIZE];
-        int len;
-        while ((len = in.read(b, 0, COPY_BUFFER_SIZE)) > 0) {
-            out.write(b, 0, len);
+        byte[] b = PinBufferPool.shared().acquire();
+        try {
+            int len;
+            while ((len = in.read(b, 0, b.length)) > 0) {
+                out.write(b, 0, len);
+            }
+        } finally {
+            PinBufferPool.shared().release(b);
         }
     }
 
@@ -0,0 +1,81 @@
+package com.pinframework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.pinframework.exceptions.PinInitializationException;
+
+/**
+ * Virtual threads, when the JVM has them.<br>
+ * Pin is compiled for Java 11, so Thread.ofVirtual() and Executors.newThreadPerTaskExecutor are looked up once with
+ * method handles, and the same jar uses them when running on Java 21 or newer
+ */
+final class PinVirtualThreads {
+
+    /**
+     * Thread.ofVirtual().name(prefix, start), null if not supported
+     */
+    private static final MethodHandle NAMED_BUILDER;
+    /**
+     * Thread.Builder.factory()
+     */
+    private static final MethodHandle FACTORY;
+    /**
+     * Executors.newThreadPerTaskExecutor(ThreadFactory)
+     */
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle namedBuilder = null;
+        MethodHandle factory = null;
+        MethodHandle newThreadPerTaskExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builderClass));
+            MethodHandle name = lookup.findVirtual(builderClass, "name",
+                    MethodType.methodType(builderClass, String.class, long.class));
+            namedBuilder = MethodHandles.foldArguments(name, ofVirtual);
+            factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            newThreadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            //before Java 21
+            namedBuilder = null;
+        }
+        NAMED_BUILDER = namedBuilder;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private PinVirtualThreads() {
+        //coverage
+    }
+
+    static boolean isSupported() {
+        return NAMED_BUILDER != null;
+    }
+
+    /**
+     * @return an executor that runs every task in a new virtual thread
+     */
+    static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new PinInitializationException("Virtual threads need Java 21 or newer, running on Java "
+                    + Runtime.version().feature());
+        }
+        try {
+            Object builder = NAMED_BUILDER.invoke("pin-virtual-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(threadFactory);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new PinInitializationException("Can not create the virtual threads executor", t);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.pinframework;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A sample request declared for a route with PinRouteOptions.warmupRequest, run while the server warms up. The
+ * method is the route one
+ */
+final class PinWarmupRequest {
+
+    private final String pathAndQuery;
+    private final byte[] body;
+    private final String contentType;
+
+    /**
+     * @param pathAndQuery like "users/1?details=true", without the app context
+     * @param body         null for none
+     * @param contentType  null for none
+     */
+    PinWarmupRequest(String pathAndQuery, String body, String contentType) {
+        this.pathAndQuery = pathAndQuery;
+        this.body = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        this.contentType = contentType;
+    }
+
+    String getPathAndQuery() {
+        return pathAndQuery;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+}
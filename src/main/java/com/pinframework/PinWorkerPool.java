@@ -0,0 +1,327 @@
+package com.pinframework;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Where handlers run.<br>
+ * When Pin dispatches by itself, a thread of the I/O executor only reads the request and finds the route, then the
+ * handler is queued here. If the queue is full the rejection policy is applied right there, before any handler
+ * code runs.<br>
+ * Otherwise the HttpServer executor already put the request in a thread of this pool, and handlers just run in it.
+ * <br>
+ * Either way every task is timed from the moment it is queued until a thread starts it, so the pool knows how
+ * saturated it is
+ */
+public final class PinWorkerPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PinWorkerPool.class);
+
+    public static final String DEFAULT_NAME = "default";
+    /**
+     * The lane of HIGH priority routes
+     */
+    public static final String PRIORITY_NAME = "priority";
+    /**
+     * Threads of the I/O executor are named after it
+     */
+    static final String IO_NAME = "io";
+    /**
+     * Connections accepted and waiting for an I/O thread, the next one is closed
+     */
+    private static final int IO_QUEUE_CAPACITY = 1024;
+    /**
+     * Every new wait counts 1/8 in the recent wait
+     */
+    private static final int RECENT_WAIT_WEIGHT = 8;
+
+    private final String name;
+    private final Executor executor;
+    private final boolean dispatching;
+    private final boolean owned;
+    private final PinRejectionPolicy rejectionPolicy;
+    private final String retryAfterSeconds;
+    private final PinFairScheduler fairScheduler;
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final PinLatencyHistogram waitHistogram = new PinLatencyHistogram();
+    /**
+     * Moving average, updated by every task that starts. Races lose a sample at most
+     */
+    private volatile long recentWaitNanos = 0;
+    /**
+     * Last time a task started, or the queue stopped being empty
+     */
+    private volatile long lastProgressNanos = System.nanoTime();
+    private final byte[] prometheusLabels;
+
+    /**
+     * @param name              shown in logs and stats
+     * @param executor          where handlers run
+     * @param dispatching       true if Pin must hand requests to executor, false if they are already running in it
+     * @param owned             true if Pin created executor, so it shuts it down when the server stops
+     * @param rejectionPolicy   what to do when executor rejects a request
+     * @param retryAfterSeconds Retry-After value for 503 responses
+     */
+    PinWorkerPool(String name, Executor executor, boolean dispatching, boolean owned,
+            PinRejectionPolicy rejectionPolicy, int retryAfterSeconds) {
+        this(name, executor, dispatching, owned, rejectionPolicy, retryAfterSeconds, null);
+    }
+
+    /**
+     * @param fairScheduler     decides the order of queued requests, null to run them in arrival order
+     */
+    PinWorkerPool(String name, Executor executor, boolean dispatching, boolean owned,
+            PinRejectionPolicy rejectionPolicy, int retryAfterSeconds, PinFairScheduler fairScheduler) {
+        this.name = name;
+        this.executor = executor;
+        this.dispatching = dispatching;
+        this.owned = owned;
+        this.rejectionPolicy = rejectionPolicy;
+        this.retryAfterSeconds = Integer.toString(retryAfterSeconds);
+        this.fairScheduler = fairScheduler;
+        this.prometheusLabels = PinPrometheusWriter.labels("pool", name);
+    }
+
+    /**
+     * @return a pool that runs every task in the calling thread, for routes registered straight in a PinAdapter
+     */
+    static PinWorkerPool inline() {
+        return new PinWorkerPool(DEFAULT_NAME, Runnable::run, false, false, PinRejectionPolicy.SERVICE_UNAVAILABLE, 1);
+    }
+
+    /**
+     * @param name          used to name threads
+     * @param threads       fixed number of threads
+     * @param queueCapacity requests waiting for a thread, the next one is rejected
+     * @return a ThreadPoolExecutor that throws RejectedExecutionException when its queue is full
+     */
+    static ThreadPoolExecutor newBoundedExecutor(String name, int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> new Thread(runnable, "pin-" + name + "-" + threadNumber.incrementAndGet());
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * The executor to give the HttpServer when Pin dispatches by itself. Its threads read the request line and
+     * headers, which blocks as long as the client takes to send them, so the HttpServer thread that accepts
+     * connections never does, and a few slow clients do not stall every other request. When every I/O thread is busy
+     * and its queue is full, the HttpServer closes the new connection
+     *
+     * @return a ThreadPoolExecutor with a thread per processor, 2 at least
+     */
+    static ThreadPoolExecutor newIoExecutor() {
+        return newBoundedExecutor(IO_NAME, Math.max(2, Runtime.getRuntime().availableProcessors()),
+                IO_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Runs task in this pool, or applies the rejection policy
+     *
+     * @param httpExchange the exchange task will answer, used to answer it here if task is rejected
+     * @param task         it must always close httpExchange
+     * @return false if task was rejected and a 503 was already sent
+     */
+    boolean dispatch(HttpExchange httpExchange, Runnable task) {
+        return dispatch(httpExchange, null, task);
+    }
+
+    /**
+     * Runs task in this pool, or applies the rejection policy. With fair queuing, task waits in the queue of the
+     * pinExchange key, and it is rejected when that queue is full, whatever the rejection policy says
+     *
+     * @param httpExchange the exchange task will answer, used to answer it here if task is rejected
+     * @param pinExchange  used to find the fair queuing key, null for requests without route
+     * @param task         it must always close httpExchange
+     * @return false if task was rejected and a 503 was already sent
+     */
+    boolean dispatch(HttpExchange httpExchange, PinExchange pinExchange, Runnable task) {
+        dispatched.increment();
+        if (!dispatching) {
+            task.run();
+            return true;
+        }
+        Runnable timedTask = timed(task);
+        if (fairScheduler != null) {
+            String key = fairScheduler.keyOf(pinExchange);
+            if (fairScheduler.submit(key, timedTask)) {
+                return true;
+            }
+            queued.decrementAndGet();
+            shed.increment();
+            LOG.debug("Worker pool '{}' queue for key '{}' is full, answering 503 to '{}'", name, key,
+                    httpExchange.getRequestURI());
+            PinQuickResponse.serviceUnavailable(httpExchange, retryAfterSeconds);
+            return false;
+        }
+        try {
+            executor.execute(timedTask);
+            return true;
+        } catch (RejectedExecutionException ree) {
+            shed.increment();
+            if (rejectionPolicy == PinRejectionPolicy.CALLER_RUNS) {
+                timedTask.run();
+                return true;
+            }
+            queued.decrementAndGet();
+            LOG.debug("Worker pool '{}' is full, answering 503 to '{}'", name, httpExchange.getRequestURI());
+            PinQuickResponse.serviceUnavailable(httpExchange, retryAfterSeconds);
+            return false;
+        }
+    }
+
+    /**
+     * @return the executor to give the HttpServer when Pin does not dispatch, it times every exchange like
+     *         dispatch does
+     */
+    Executor timedExecutor() {
+        return command -> {
+            Runnable timedCommand = timed(command);
+            try {
+                executor.execute(timedCommand);
+            } catch (RejectedExecutionException ree) {
+                queued.decrementAndGet();
+                throw ree;
+            }
+        };
+    }
+
+    /**
+     * Counts task as queued, the returned runnable records the wait and counts it as active while it runs
+     */
+    private Runnable timed(Runnable task) {
+        long queuedNanos = System.nanoTime();
+        if (queued.getAndIncrement() == 0) {
+            lastProgressNanos = queuedNanos;
+        }
+        return () -> {
+            long startNanos = System.nanoTime();
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            long waitNanos = startNanos - queuedNanos;
+            waitHistogram.record(waitNanos);
+            recentWaitNanos = (recentWaitNanos * (RECENT_WAIT_WEIGHT - 1) + waitNanos) / RECENT_WAIT_WEIGHT;
+            lastProgressNanos = startNanos;
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * @param maxWaitNanos wait a request can take without the pool being saturated
+     * @return true if requests are waiting, and lately they wait longer than maxWaitNanos, or none started for
+     *         longer than that because every thread is stuck. An empty queue is never saturated, so the pool is ready
+     *         again once a load balancer stops sending requests to it
+     */
+    boolean isSaturated(long maxWaitNanos) {
+        if (queued.get() == 0) {
+            return false;
+        }
+        return recentWaitNanos > maxWaitNanos || System.nanoTime() - lastProgressNanos > maxWaitNanos;
+    }
+
+    /**
+     * Stops the executor if Pin created it. Executors given by the user are left alone
+     */
+    void shutdown() {
+        if (owned && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return value for the Retry-After header of 503 responses of routes in this pool
+     */
+    String getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return null if requests are queued in arrival order
+     */
+    PinFairScheduler getFairScheduler() {
+        return fairScheduler;
+    }
+
+    byte[] getPrometheusLabels() {
+        return prometheusLabels;
+    }
+
+    /**
+     * @return requests handed to this pool, including shed ones
+     */
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    /**
+     * @return requests the executor did not accept, whatever the rejection policy did with them
+     */
+    public long getShed() {
+        return shed.sum();
+    }
+
+    /**
+     * Counters and wait times start again, queued and active requests are not touched
+     */
+    void resetStats() {
+        dispatched.reset();
+        shed.reset();
+        waitHistogram.reset();
+        recentWaitNanos = 0;
+    }
+
+    /**
+     * @return requests queued and not started yet, fair queues included
+     */
+    public int getQueueSize() {
+        return queued.get();
+    }
+
+    /**
+     * @return tasks running right now
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return time from queued to started of every task
+     */
+    public PinLatencyHistogram getWaitHistogram() {
+        return waitHistogram;
+    }
+
+    /**
+     * @return moving average of the latest waits, in milliseconds
+     */
+    public long getRecentWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(recentWaitNanos);
+    }
+}
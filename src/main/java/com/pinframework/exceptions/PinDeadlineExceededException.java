@@ -0,0 +1,11 @@
+package com.pinframework.exceptions;
+
+/**
+ * Rendered with status 504 when a route does not answer before its deadline
+ */
+public class PinDeadlineExceededException extends PinRuntimeException {
+
+    public PinDeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.pinframework.exceptions;
+
+/**
+ * Rendered with status 413 when a request body is bigger than its body budget allows
+ */
+public class PinPayloadTooLargeException extends PinRuntimeException {
+
+    public PinPayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -3,8 +3,6 @@ package com.pinframework.render;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -19,7 +17,7 @@ public abstract class PinAbstractRender implements PinRender {
         if (obj == null) {
             outputStream.close();
         } else {
-            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 4096)) {
+            try (BufferedWriter writer = new PinUtf8BufferedWriter(outputStream)) {
                 writeNonNullObject(writer, obj);
                 writer.flush();
             }
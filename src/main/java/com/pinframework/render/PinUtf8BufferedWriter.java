@@ -0,0 +1,137 @@
+package com.pinframework.render;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import com.pinframework.PinBufferPool;
+
+/**
+ * A BufferedWriter, so renders keep their signature, that encodes UTF-8 by itself into a buffer of the shared
+ * PinBufferPool, instead of allocating a char buffer, an encoder and its byte buffer for every response.<br>
+ * Malformed surrogates are written as '?', like OutputStreamWriter does. The buffer goes back to the pool on close
+ */
+final class PinUtf8BufferedWriter extends BufferedWriter {
+
+    private static final Writer NO_WRITER = Writer.nullWriter();
+    /**
+     * bytes of the longest char sequence, a surrogate pair
+     */
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int count = 0;
+    /**
+     * a high surrogate waiting for its low one, 0 if none
+     */
+    private char highSurrogate = 0;
+
+    PinUtf8BufferedWriter(OutputStream out) {
+        //the inherited buffer is never used
+        super(NO_WRITER, 1);
+        this.out = out;
+        this.buffer = PinBufferPool.shared().acquire();
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off; i < off + len; i++) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String s, int off, int len) throws IOException {
+        ensureOpen();
+        for (int i = off; i < off + len; i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void newLine() throws IOException {
+        write(System.lineSeparator());
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (count > buffer.length - MAX_CHAR_BYTES) {
+            flushBuffer();
+        }
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buffer[count++] = '?';
+            writeChar(c);
+            return;
+        }
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            buffer[count++] = (byte) (0xE0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Writer closed");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                buffer[count++] = '?';
+            }
+            flushBuffer();
+        } finally {
+            PinBufferPool.shared().release(buffer);
+            buffer = null;
+            out.close();
+        }
+    }
+}
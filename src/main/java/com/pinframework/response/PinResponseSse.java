@@ -1,5 +1,6 @@
 package com.pinframework.response;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -11,10 +12,12 @@ import com.pinframework.PinUtils;
 import com.pinframework.exceptions.PinRuntimeException;
 import com.sun.net.httpserver.HttpExchange;
 
-public class PinResponseSse {
+public class PinResponseSse implements Closeable {
+    private final PinExchange pinExchange;
     private final PrintWriter printWriter;
 
     private PinResponseSse(PinExchange pinExchange) {
+        this.pinExchange = pinExchange;
         //super(HttpURLConnection.HTTP_OK, pinExchange, PinRenderNull.INSTANCE);
         HttpExchange httpExchange = pinExchange.raw();
         httpExchange.getResponseHeaders().add(PinContentType.CONTENT_TYPE, "text/event-stream");
@@ -28,6 +31,7 @@ public class PinResponseSse {
         }
         this.printWriter = new PrintWriter(new OutputStreamWriter(httpExchange.getResponseBody(), StandardCharsets.UTF_8),
                 false);
+        pinExchange.registerOpenStream(this);
     }
 
     public static PinResponseSse of(PinExchange pinExchange) {
@@ -49,4 +53,14 @@ public class PinResponseSse {
         return true;
     }
 
+    /**
+     * Ends the stream, the client sees a clean end of response. Also called by the server when it drains
+     */
+    @Override
+    public void close() {
+        pinExchange.unregisterOpenStream(this);
+        printWriter.close();
+        pinExchange.raw().close();
+    }
+
 }
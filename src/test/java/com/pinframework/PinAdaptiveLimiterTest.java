@@ -0,0 +1,94 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class PinAdaptiveLimiterTest {
+
+    /**
+     * Runs as many requests as the limit allows, all of them taking rttMillis, until windows are over
+     */
+    private static void runWindows(PinAdaptiveLimiter limiter, int windows, long rttMillis) {
+        for (int window = 0; window < windows; window++) {
+            int samples = 0;
+            while (samples < PinAdaptiveLimiter.WINDOW_SAMPLES) {
+                int acquired = 0;
+                while (limiter.tryAcquire()) {
+                    acquired++;
+                }
+                for (int i = 0; i < acquired; i++) {
+                    limiter.release(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+                }
+                samples += acquired;
+            }
+        }
+    }
+
+    @Test
+    public void rejectsOverLimit() {
+        PinAdaptiveLimiter limiter = new PinAdaptiveLimiter(2, 1, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getRejected());
+        limiter.releaseWithoutSample();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void growsWhileLatencyIsStableAndShrinksWhenItRises() {
+        PinAdaptiveLimiter limiter = new PinAdaptiveLimiter(10, 1, 100);
+        runWindows(limiter, 20, 1);
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10, "limit " + grown);
+
+        //only a few windows, in the long run the new latency becomes the normal one
+        runWindows(limiter, 5, 20);
+        assertTrue(limiter.getLimit() < grown, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    public void staysBetweenMinAndMax() {
+        PinAdaptiveLimiter limiter = new PinAdaptiveLimiter(10, 9, 12);
+        runWindows(limiter, 50, 1);
+        assertEquals(12, limiter.getLimit());
+        int lowest = limiter.getLimit();
+        for (int i = 0; i < 20; i++) {
+            runWindows(limiter, 1, 1_000);
+            lowest = Math.min(lowest, limiter.getLimit());
+        }
+        assertEquals(9, lowest);
+    }
+
+    @Test
+    public void doesNotGrowWhenNotUsed() {
+        PinAdaptiveLimiter limiter = new PinAdaptiveLimiter(10, 1, 100);
+        for (int i = 0; i < PinAdaptiveLimiter.WINDOW_SAMPLES * 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void releasesFromManyThreads() throws InterruptedException {
+        PinAdaptiveLimiter limiter = new PinAdaptiveLimiter(8, 1, 100);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            threads.execute(() -> runWindows(limiter, 20, 1));
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getInFlight());
+        //busy and quick, windows closed and the limit grew
+        assertTrue(limiter.getLimit() > 8, "limit " + limiter.getLimit());
+    }
+}
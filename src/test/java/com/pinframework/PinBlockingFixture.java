@@ -0,0 +1,85 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * What the load tests share: handlers that hold their thread until released, so worker pools and budgets can be
+ * filled on purpose, and a client for the server on port 9999. One instance per group of routes released together
+ */
+final class PinBlockingFixture {
+
+    static final String URL = "http://localhost:9999/";
+
+    private final OkHttpClient client = new OkHttpClient();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * @return a handler that blocks until release(), and then answers "done"
+     */
+    PinHandler blocking() {
+        return blocking(ex -> PinResponse.ok("done"));
+    }
+
+    /**
+     * @param then what the handler does once released
+     * @return a handler that blocks until release()
+     */
+    PinHandler blocking(PinHandler then) {
+        return ex -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return then.handle(ex);
+        };
+    }
+
+    /**
+     * @return true if a blocking handler started in time
+     */
+    boolean awaitStarted() throws InterruptedException {
+        return started.await(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Lets every blocking handler go on, it can be called more than once
+     */
+    void release() {
+        release.countDown();
+    }
+
+    OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @param path without the leading /
+     * @return status code, a space and the body
+     */
+    String get(String path) throws IOException {
+        Request request = new Request.Builder()
+                .url(URL + path)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            return response.code() + " " + response.body().string();
+        }
+    }
+
+    /**
+     * Waits for workerPool to have queueSize requests waiting, and checks it has them
+     */
+    static void awaitQueueSize(PinWorkerPool workerPool, int queueSize) throws InterruptedException {
+        for (int i = 0; i < 500 && workerPool.getQueueSize() < queueSize; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(queueSize, workerPool.getQueueSize());
+    }
+}
@@ -0,0 +1,44 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+public class PinBufferPoolTest {
+
+    @Test
+    public void reusesReleasedBuffers() {
+        PinBufferPool pool = new PinBufferPool(1, 2);
+        byte[] buffer = pool.acquire();
+        assertEquals(PinBufferPool.BUFFER_SIZE, buffer.length);
+        assertEquals(1, pool.getMisses());
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire());
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    public void allocatesWhenEmptyAndDropsWhenFull() {
+        PinBufferPool pool = new PinBufferPool(1, 1);
+        byte[] first = pool.acquire();
+        byte[] second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getMisses());
+        pool.release(first);
+        pool.release(second);
+        assertSame(first, pool.acquire());
+        pool.acquire();
+        assertEquals(3, pool.getMisses());
+    }
+
+    @Test
+    public void ignoresBuffersOfOtherSizes() {
+        PinBufferPool pool = new PinBufferPool(1, 2);
+        pool.release(new byte[16]);
+        pool.release(null);
+        assertEquals(PinBufferPool.BUFFER_SIZE, pool.acquire().length);
+        assertEquals(0, pool.getHits());
+    }
+}
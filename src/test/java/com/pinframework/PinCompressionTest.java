@@ -0,0 +1,23 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+
+public class PinCompressionTest {
+
+    @Test
+    public void reusesDeflatersOfTheSameKind() {
+        PinCompression compression = new PinCompression(PinCompression.DEFAULT_MIN_BYTES, true);
+        Deflater gzip = compression.acquire(true);
+        Deflater zlib = compression.acquire(false);
+        compression.release(gzip, true);
+        compression.release(zlib, false);
+        assertSame(gzip, compression.acquire(true));
+        assertSame(zlib, compression.acquire(false));
+        assertNotSame(gzip, compression.acquire(true));
+    }
+}
@@ -0,0 +1,47 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PinContentEncodingTest {
+
+    private static String negotiate(String acceptEncoding) {
+        return PinContentEncoding.negotiate(acceptEncoding, PinContentEncoding.GZIP, PinContentEncoding.DEFLATE);
+    }
+
+    @Test
+    public void picksTheHighestQuality() {
+        assertEquals("gzip", negotiate("gzip, deflate, br"));
+        assertEquals("deflate", negotiate("deflate"));
+        assertEquals("deflate", negotiate("gzip;q=0.5, deflate;q=0.8"));
+        assertEquals("gzip", negotiate("GZIP ; q=1.0"));
+        assertEquals("gzip", negotiate("*"));
+        assertEquals("deflate", negotiate("gzip;q=0, *;q=0.1"));
+    }
+
+    @Test
+    public void acceptsNothingElse() {
+        assertNull(negotiate(null));
+        assertNull(negotiate(""));
+        assertNull(negotiate("identity"));
+        assertNull(negotiate("br"));
+        assertNull(negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(negotiate("*;q=0"));
+        assertNull(negotiate("gzip;q=nope"));
+    }
+
+    @Test
+    public void compressesTextOnly() {
+        assertTrue(PinContentEncoding.isCompressible(PinContentType.TEXT_HTML_UTF8));
+        assertTrue(PinContentEncoding.isCompressible("application/javascript"));
+        assertTrue(PinContentEncoding.isCompressible("application/json; charset=utf-8"));
+        assertTrue(PinContentEncoding.isCompressible("image/svg+xml"));
+        assertFalse(PinContentEncoding.isCompressible("image/png"));
+        assertFalse(PinContentEncoding.isCompressible("application/octet-stream"));
+        assertFalse(PinContentEncoding.isCompressible(null));
+    }
+}
@@ -0,0 +1,111 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class PinFairSchedulerTest {
+
+    /**
+     * Runs tasks only when told, one at a time
+     */
+    private static final class StepExecutor implements java.util.concurrent.Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.addLast(command);
+        }
+
+        void runOne() {
+            tasks.pollFirst().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.pollFirst().run();
+            }
+        }
+    }
+
+    private static void submit(PinFairScheduler scheduler, List<String> ran, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(scheduler.submit(key, () -> ran.add(key)));
+        }
+    }
+
+    @Test
+    public void takesTurnsAmongKeys() {
+        StepExecutor executor = new StepExecutor();
+        PinFairScheduler scheduler = new PinFairScheduler(executor, 1, 10, Collections.emptyMap(), ex -> null);
+        List<String> ran = new ArrayList<>();
+        submit(scheduler, ran, "noisy", 6);
+        submit(scheduler, ran, "quiet", 2);
+        executor.runAll();
+        //the first noisy one was already running when quiet arrived
+        assertEquals(List.of("noisy", "noisy", "quiet", "noisy", "quiet", "noisy", "noisy", "noisy"), ran);
+        assertEquals(0, scheduler.getQueued());
+        assertEquals(0, scheduler.getActiveKeys());
+    }
+
+    @Test
+    public void weightsGiveMoreTurns() {
+        StepExecutor executor = new StepExecutor();
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("big", 3);
+        PinFairScheduler scheduler = new PinFairScheduler(executor, 1, 10, weights, ex -> null);
+        List<String> ran = new ArrayList<>();
+        submit(scheduler, ran, "first", 1);
+        submit(scheduler, ran, "small", 3);
+        submit(scheduler, ran, "big", 6);
+        executor.runAll();
+        assertEquals(List.of("first", "small", "big", "big", "big", "small", "big", "big", "big", "small"), ran);
+    }
+
+    @Test
+    public void newKeyGoesRightAfterTheTurnInProgress() {
+        StepExecutor executor = new StepExecutor();
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("busy", 3);
+        PinFairScheduler scheduler = new PinFairScheduler(executor, 1, 10, weights, ex -> null);
+        List<String> ran = new ArrayList<>();
+        submit(scheduler, ran, "busy", 8);
+        //the second busy one starts its turn
+        executor.runOne();
+        submit(scheduler, ran, "fresh", 1);
+        executor.runAll();
+        assertEquals(List.of("busy", "busy", "busy", "busy", "fresh", "busy", "busy", "busy", "busy"), ran);
+    }
+
+    @Test
+    public void rejectsWhenKeyQueueIsFull() {
+        StepExecutor executor = new StepExecutor();
+        PinFairScheduler scheduler = new PinFairScheduler(executor, 1, 2, Collections.emptyMap(), ex -> null);
+        assertTrue(scheduler.submit("a", () -> { }));
+        assertTrue(scheduler.submit("a", () -> { }));
+        assertTrue(scheduler.submit("a", () -> { }));
+        assertFalse(scheduler.submit("a", () -> { }));
+        assertTrue(scheduler.submit("b", () -> { }));
+        assertEquals(3, scheduler.getQueued());
+        executor.runAll();
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    public void brokenKeyGoesToSharedQueue() {
+        PinFairScheduler scheduler = new PinFairScheduler(Runnable::run, 1, 1, Collections.emptyMap(), ex -> {
+            throw new IllegalStateException("broken");
+        });
+        assertEquals("", scheduler.keyOf(new PinExchange(null, null, Collections.emptyMap())));
+        assertEquals("", scheduler.keyOf(null));
+    }
+}
@@ -0,0 +1,70 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class PinLatencyHistogramTest {
+
+    @ParameterizedTest
+    @MethodSource
+    public void bucketIndex(long micros, int expected) {
+        assertEquals(expected, PinLatencyHistogram.bucketIndex(micros));
+    }
+
+    static Stream<Arguments> bucketIndex() {
+        return Stream.of(
+                arguments(0, 0),
+                arguments(31, 31),
+                arguments(32, 32),
+                arguments(63, 63),
+                arguments(64, 64),
+                arguments(65, 64),
+                arguments(66, 65),
+                arguments(Long.MAX_VALUE, PinLatencyHistogram.BUCKET_COUNT - 1)
+        );
+    }
+
+    @Test
+    public void everyValueIsWithinItsBucket() {
+        for (long micros = 0; micros < 1_000_000; micros += 7) {
+            int index = PinLatencyHistogram.bucketIndex(micros);
+            assertTrue(micros <= PinLatencyHistogram.bucketUpperBoundMicros(index));
+            assertTrue(index == 0 || micros > PinLatencyHistogram.bucketUpperBoundMicros(index - 1));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        PinLatencyHistogram histogram = new PinLatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), histogram.getMaxNanos());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500), histogram.getValueAtPercentile(50));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(990), histogram.getValueAtPercentile(99));
+        assertEquals(histogram.getMaxNanos(), histogram.getValueAtPercentile(100));
+    }
+
+    private void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= expected / 32, "expected about " + expected + " but was " + actual);
+    }
+
+    @Test
+    public void reset() {
+        PinLatencyHistogram histogram = new PinLatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
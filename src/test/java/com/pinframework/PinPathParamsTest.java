@@ -0,0 +1,59 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.pinframework.exceptions.PinBadRequestException;
+
+public class PinPathParamsTest {
+
+    private final PinPathParams pathParams = new PinPathParams("/users/1234/x/abc/", new String[] { "id", "empty", "name" },
+            new int[] { 7, 11, 12, 12, 14, 17 });
+
+    @Test
+    public void get() {
+        assertEquals("1234", pathParams.get("id"));
+        assertEquals("", pathParams.get("empty"));
+        assertEquals("abc", pathParams.get("name"));
+        assertNull(pathParams.get("other"));
+    }
+
+    @Test
+    public void containsKey() {
+        assertTrue(pathParams.containsKey("id"));
+        assertFalse(pathParams.containsKey("other"));
+    }
+
+    @Test
+    public void equalsToAnyMap() {
+        assertEquals(Map.of("id", "1234", "empty", "", "name", "abc"), pathParams);
+        assertEquals(3, pathParams.size());
+    }
+
+    @Test
+    public void whenPutThenFail() {
+        assertThrows(UnsupportedOperationException.class, () -> pathParams.put("id", "1"));
+    }
+
+    @Test
+    public void getAsLong() {
+        assertEquals(1234L, pathParams.getAsLong("id"));
+        assertNull(pathParams.getAsLong("empty"));
+        assertNull(pathParams.getAsLong("other"));
+    }
+
+    @Test
+    public void whenGetAsLongInvalidThenThrowPinBadRequestException() {
+        PinBadRequestException thrown = assertThrows(PinBadRequestException.class, () -> pathParams.getAsLong("name"));
+        assertEquals("CAN_NOT_CONVERT", thrown.getMessageKey());
+        assertEquals("abc", thrown.getCurrentValue());
+        assertEquals("The field name with value abc can not be converted to Long", thrown.getMessage());
+    }
+}
@@ -0,0 +1,63 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class PinPrometheusWriterTest {
+
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private final PinPrometheusWriter writer = new PinPrometheusWriter(outputStream);
+
+    private String written() throws IOException {
+        writer.close();
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writeLong() throws IOException {
+        writer.writeLong(0);
+        writer.write(' ');
+        writer.writeLong(1234567890123L);
+        writer.write(' ');
+        writer.writeLong(-42);
+        writer.write(' ');
+        writer.writeLong(Long.MAX_VALUE);
+        writer.write(' ');
+        writer.writeLong(Long.MIN_VALUE);
+        assertEquals("0 1234567890123 -42 9223372036854775807 -9223372036854775808", written());
+    }
+
+    @Test
+    public void writeSeconds() throws IOException {
+        writer.writeSeconds(0);
+        writer.write(' ');
+        writer.writeSeconds(1_500_000_000L);
+        writer.write(' ');
+        writer.writeSeconds(1_234);
+        assertEquals("0.000000000 1.500000000 0.000001234", written());
+    }
+
+    @Test
+    public void writeSampleWithEscapedLabels() throws IOException {
+        writer.writeSample(PinPrometheusWriter.encode("pin_test_total"),
+                PinPrometheusWriter.labels("path", "/a\"b\\c", "method", "GET"), 7);
+        writer.writeSample(PinPrometheusWriter.encode("pin_test_total"), new byte[0], 8);
+        assertEquals("pin_test_total{path=\"/a\\\"b\\\\c\",method=\"GET\"} 7\npin_test_total 8\n", written());
+    }
+
+    @Test
+    public void writeMoreThanBuffer() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            writer.writeLong(i);
+            writer.write('\n');
+            expected.append(i).append('\n');
+        }
+        assertEquals(expected.toString(), written());
+    }
+}
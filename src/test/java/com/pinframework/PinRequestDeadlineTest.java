@@ -0,0 +1,106 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class PinRequestDeadlineTest {
+
+    @Test
+    public void expiryInterruptsTheHandler() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        PinRequestDeadline deadline = new PinRequestDeadline(expired::countDown);
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService handler = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> interrupted = handler.submit(() -> {
+                deadline.handlerStarted();
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                    return false;
+                } catch (InterruptedException ie) {
+                    return true;
+                } finally {
+                    deadline.handlerReturned();
+                }
+            });
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+            deadline.run();
+            assertTrue(interrupted.get(2, TimeUnit.SECONDS));
+            assertTrue(expired.await(2, TimeUnit.SECONDS));
+            assertFalse(deadline.answer());
+        } finally {
+            handler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void handlerIsNotInterruptedInsideIo() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        PinRequestDeadline deadline = new PinRequestDeadline(expired::countDown);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch dataArrived = new CountDownLatch(1);
+        //a read blocked on the client, an interrupt here would close the connection
+        InputStream slowClient = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    dataArrived.await();
+                } catch (InterruptedException ie) {
+                    throw new InterruptedIOException("interrupted while reading");
+                }
+                return 'a';
+            }
+        };
+        InputStream in = deadline.guard(slowClient);
+        ExecutorService handler = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> result = handler.submit(() -> {
+                deadline.handlerStarted();
+                try {
+                    int read = in.read();
+                    boolean interruptedAfterRead = Thread.currentThread().isInterrupted();
+                    IOException nextRead = assertThrows(IOException.class, in::read);
+                    return (char) read + " " + interruptedAfterRead + " " + nextRead.getMessage();
+                } finally {
+                    deadline.handlerReturned();
+                }
+            });
+            assertTrue(reading.await(2, TimeUnit.SECONDS));
+            deadline.run();
+            assertTrue(expired.await(2, TimeUnit.SECONDS));
+            dataArrived.countDown();
+            assertEquals("a true Deadline exceeded, the timeout response is already on its way",
+                    result.get(2, TimeUnit.SECONDS));
+        } finally {
+            handler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void expiryCancelsTheFuture() throws InterruptedException {
+        CountDownLatch expired = new CountDownLatch(1);
+        PinRequestDeadline deadline = new PinRequestDeadline(expired::countDown);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        deadline.futureReturned(future);
+        deadline.run();
+        assertTrue(future.isCancelled());
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        assertTrue(deadline.isExpired());
+    }
+}
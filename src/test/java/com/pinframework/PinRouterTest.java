@@ -0,0 +1,166 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pinframework.exceptions.PinInitializationException;
+import com.pinframework.render.PinRenderText;
+
+public class PinRouterTest {
+
+    private PinRouter router;
+
+    @BeforeEach
+    public void setup() {
+        router = new PinRouter();
+        add("GET", "/users");
+        add("GET", "/users/:id");
+        add("GET", "/users/me");
+        add("GET", "/users/me/settings");
+        add("GET", "/users/:id/friends/:friendId");
+        add("POST", "/users");
+    }
+
+    private void add(String method, String fullPath) {
+        router = router.withRoute(new PinRoute(method, fullPath, ex -> PinResponse.ok(), new PinRenderText()));
+    }
+
+    @Test
+    public void whenStaticPathThenMatch() {
+        PinRouteMatch match = router.find("GET", "/users");
+        assertEquals("/users", match.getRoute().getFullPath());
+        assertTrue(match.getPathParams().isEmpty());
+    }
+
+    @Test
+    public void whenTrailingSlashThenIgnoreIt() {
+        assertEquals("/users", router.find("GET", "/users/").getRoute().getFullPath());
+    }
+
+    @Test
+    public void whenParamThenCaptureIt() {
+        PinRouteMatch match = router.find("GET", "/users/1234");
+        assertEquals("/users/:id", match.getRoute().getFullPath());
+        assertEquals(Map.of("id", "1234"), match.getPathParams());
+    }
+
+    @Test
+    public void whenStaticAndParamMatchThenStaticWins() {
+        assertEquals("/users/me", router.find("GET", "/users/me").getRoute().getFullPath());
+    }
+
+    @Test
+    public void whenStaticBranchLeadsNowhereThenTryParam() {
+        PinRouteMatch match = router.find("GET", "/users/me/friends/7");
+        assertEquals("/users/:id/friends/:friendId", match.getRoute().getFullPath());
+        assertEquals(Map.of("id", "me", "friendId", "7"), match.getPathParams());
+    }
+
+    @Test
+    public void whenEmptySegmentThenParamIsEmpty() {
+        PinRouteMatch match = router.find("GET", "/users//friends/7");
+        assertEquals(Map.of("id", "", "friendId", "7"), match.getPathParams());
+    }
+
+    @Test
+    public void whenNoMatchThenNull() {
+        assertNull(router.find("GET", "/users/1/enemies"));
+        assertNull(router.find("GET", "/orders"));
+        assertNull(router.find("DELETE", "/users"));
+    }
+
+    @Test
+    public void hasMethod() {
+        assertTrue(router.hasMethod("POST"));
+        assertFalse(router.hasMethod("PUT"));
+    }
+
+    @Test
+    public void whenWithoutRouteThenOnlyNewRouterChanges() {
+        PinRouter withoutMe = router.withoutRoute("GET", "/users/me");
+        assertEquals("/users/:id", withoutMe.find("GET", "/users/me").getRoute().getFullPath());
+        assertEquals("/users/me", router.find("GET", "/users/me").getRoute().getFullPath());
+        assertEquals(router.getRoutes().size() - 1, withoutMe.getRoutes().size());
+    }
+
+    @Test
+    public void whenWithoutMissingRouteThenSameRouter() {
+        assertSame(router, router.withoutRoute("PUT", "/users/me"));
+    }
+
+    @Test
+    public void whenWithoutRouteWithOtherParamNamesThenSameRouter() {
+        assertSame(router, router.withoutRoute("GET", "/users/:userId"));
+    }
+
+    @Test
+    public void whenWithoutLastRouteOfMethodThenMethodIsGone() {
+        PinRouter withoutPost = router.withoutRoute("POST", "/users");
+        assertFalse(withoutPost.hasMethod("POST"));
+        assertTrue(router.hasMethod("POST"));
+    }
+
+    @Test
+    public void whenWithoutRouteThenItsBranchIsGone() {
+        PinRouter withoutSettings = router.withoutRoute("GET", "/users/me/settings");
+        assertNull(withoutSettings.find("GET", "/users/me/settings"));
+        assertEquals("/users/:id/friends/:friendId",
+                withoutSettings.find("GET", "/users/me/friends/7").getRoute().getFullPath());
+        assertEquals("/users/me/settings", router.find("GET", "/users/me/settings").getRoute().getFullPath());
+    }
+
+    @Test
+    public void whenWithRouteThenOldRouterDoesNotChange() {
+        PinRouter old = router;
+        add("GET", "/users/me/avatar");
+        assertEquals("/users/me/avatar", router.find("GET", "/users/me/avatar").getRoute().getFullPath());
+        assertNull(old.find("GET", "/users/me/avatar"));
+        assertEquals(6, old.getRoutes().size());
+    }
+
+    @Test
+    public void routesAreListedInTheOrderTheyWereAdded() {
+        add("GET", "/orders");
+        router = router.withoutRoute("GET", "/users/me");
+        add("GET", "/users/me");
+        List<String> fullPaths = new ArrayList<>();
+        for (PinRoute route : router.getRoutes()) {
+            fullPaths.add(route.getMethod() + " " + route.getFullPath());
+        }
+        assertEquals(Arrays.asList("GET /users", "GET /users/:id", "GET /users/me/settings",
+                "GET /users/:id/friends/:friendId", "POST /users", "GET /orders", "GET /users/me"), fullPaths);
+        assertFalse(router.isEmpty());
+    }
+
+    @Test
+    public void whenEveryRouteIsRemovedThenEmpty() {
+        for (PinRoute route : router.getRoutes()) {
+            router = router.withoutRoute(route.getMethod(), route.getFullPath());
+        }
+        assertTrue(router.isEmpty());
+        assertTrue(router.getRoutes().isEmpty());
+        assertFalse(router.hasMethod("GET"));
+    }
+
+    @Test
+    public void whenSameTemplateTwiceThenFail() {
+        assertThrows(PinInitializationException.class, () -> add("GET", "/users/me"));
+    }
+
+    @Test
+    public void whenSameTemplateWithOtherParamNamesThenFail() {
+        assertThrows(PinInitializationException.class, () -> add("GET", "/users/:userId"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerAdaptiveConcurrencyIT {
+
+    private PinServer pinServer;
+
+    private final PinBlockingFixture limited = new PinBlockingFixture();
+    private final PinBlockingFixture pooled = new PinBlockingFixture();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(1, 1)
+                .retryAfterSeconds(2)
+                .build();
+        PinRender text = pinServer.findRender(PinRenderType.TEXT);
+        //the limit is what the pool can hold, the limiter turns the third request away
+        pinServer.on("GET", "limited", limited.blocking(), text, new PinRouteOptions().adaptiveConcurrency(2, 2));
+        //the limit is over what the pool can hold, the pool turns the third request away
+        pinServer.on("GET", "pooled", pooled.blocking(), text, new PinRouteOptions().adaptiveConcurrency(3, 3));
+        pinServer.start();
+    }
+
+    /**
+     * Fills the single thread and the single queue slot of the pool with requests to path
+     */
+    private Future<String>[] fill(ExecutorService clients, String path, PinBlockingFixture fixture)
+            throws InterruptedException {
+        @SuppressWarnings("unchecked")
+        Future<String>[] running = new Future[2];
+        running[0] = clients.submit(() -> fixture.get(path));
+        assertTrue(fixture.awaitStarted());
+        running[1] = clients.submit(() -> fixture.get(path));
+        PinBlockingFixture.awaitQueueSize(pinServer.getWorkerPools().get(0), 1);
+        return running;
+    }
+
+    private static void awaitInFlight(PinAdaptiveLimiter limiter, int inFlight) throws InterruptedException {
+        //permits are released after the exchange is closed, so the client may see the response a bit earlier
+        for (int i = 0; i < 100 && limiter.getInFlight() != inFlight; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(inFlight, limiter.getInFlight());
+    }
+
+    @Test
+    public void limiterAnswers503BeforeThePool() throws Exception {
+        PinAdaptiveLimiter limiter = pinServer.getRouteStats("GET", "limited").getAdaptiveLimiter();
+        PinWorkerPool workerPool = pinServer.getWorkerPools().get(0);
+        long shedBefore = workerPool.getShed();
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<String>[] running = fill(clients, "limited", limited);
+            assertEquals(2, limiter.getInFlight());
+
+            Request request = new Request.Builder()
+                    .url(PinBlockingFixture.URL + "limited")
+                    .build();
+            try (Response response = limited.getClient().newCall(request).execute()) {
+                assertEquals(503, response.code());
+                assertEquals("2", response.header("Retry-After"));
+                assertEquals("Service unavailable, try again later", response.body().string());
+            }
+            assertEquals(1, limiter.getRejected());
+            //turned away before the pool saw it
+            assertEquals(shedBefore, workerPool.getShed());
+            assertEquals(2, limiter.getInFlight());
+
+            limited.release();
+            assertEquals("200 done", running[0].get(5, TimeUnit.SECONDS));
+            assertEquals("200 done", running[1].get(5, TimeUnit.SECONDS));
+        } finally {
+            limited.release();
+            clients.shutdown();
+        }
+        awaitInFlight(limiter, 0);
+    }
+
+    @Test
+    public void poolRejectionGivesThePermitBack() throws Exception {
+        PinAdaptiveLimiter limiter = pinServer.getRouteStats("GET", "pooled").getAdaptiveLimiter();
+        PinWorkerPool workerPool = pinServer.getWorkerPools().get(0);
+        long shedBefore = workerPool.getShed();
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<String>[] running = fill(clients, "pooled", pooled);
+            assertEquals(2, limiter.getInFlight());
+
+            Request request = new Request.Builder()
+                    .url(PinBlockingFixture.URL + "pooled")
+                    .build();
+            try (Response response = pooled.getClient().newCall(request).execute()) {
+                assertEquals(503, response.code());
+                assertEquals("2", response.header("Retry-After"));
+            }
+            assertEquals(0, limiter.getRejected());
+            assertEquals(shedBefore + 1, workerPool.getShed());
+            //the permit the limiter gave is back, without a latency sample
+            awaitInFlight(limiter, 2);
+
+            pooled.release();
+            assertEquals("200 done", running[0].get(5, TimeUnit.SECONDS));
+            assertEquals("200 done", running[1].get(5, TimeUnit.SECONDS));
+        } finally {
+            pooled.release();
+            clients.shutdown();
+        }
+        awaitInFlight(limiter, 0);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.pinframework.exceptions.PinBadRequestException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerAsyncIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    private final List<CompletableFuture<PinResponse>> pending = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    public void setup() {
+        //one thread and one queued request, more concurrent requests only fit if handlers release the thread
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(1, 1)
+                .build();
+        PinRender text = pinServer.findRender(PinRenderType.TEXT);
+        pinServer.onAsync("GET", "async/hello/:name",
+                ex -> CompletableFuture.supplyAsync(() -> PinResponse.ok("hello " + ex.getPathParams().get("name"))), text);
+        pinServer.onAsync("GET", "async/pending", ex -> {
+            CompletableFuture<PinResponse> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }, text);
+        pinServer.onAsync("GET", "async/bad", ex -> CompletableFuture.supplyAsync(() -> {
+            throw new PinBadRequestException("bad", null);
+        }), text);
+        pinServer.onAsync("GET", "async/throws", ex -> {
+            throw new IllegalStateException("before any future");
+        }, text);
+        pinServer.start();
+    }
+
+    private String get(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            return response.code() + " " + response.body().string();
+        }
+    }
+
+    @Test
+    public void completedLater() throws IOException {
+        assertEquals("200 hello pin", get("http://localhost:9999/async/hello/pin"));
+    }
+
+    @Test
+    public void completedExceptionally() throws IOException {
+        assertEquals(400, Integer.parseInt(get("http://localhost:9999/async/bad").substring(0, 3)));
+        assertEquals(500, Integer.parseInt(get("http://localhost:9999/async/throws").substring(0, 3)));
+    }
+
+    @Test
+    public void threadIsReleasedWhileWaiting() throws Exception {
+        int requests = 4;
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<String>> responses = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                responses.add(clients.submit(() -> get("http://localhost:9999/async/pending")));
+                for (int j = 0; j < 500 && pending.size() <= i; j++) {
+                    Thread.sleep(10);
+                }
+            }
+            assertEquals(requests, pending.size());
+            pending.forEach(future -> future.complete(PinResponse.ok("finally")));
+            for (Future<String> response : responses) {
+                assertEquals("200 finally", response.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerBodyBudgetIT {
+
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+    private PinServer pinServer;
+
+    private final PinBlockingFixture fixture = new PinBlockingFixture();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .bodyBudget(1_000, 600)
+                .build();
+        pinServer.onPost("budget/read", ex -> PinResponse.ok("read " + ex.raw().getRequestBody().readAllBytes().length),
+                PinRenderType.TEXT);
+        pinServer.onPost("budget/hold",
+                fixture.blocking(ex -> PinResponse.ok("read " + ex.raw().getRequestBody().readAllBytes().length)),
+                PinRenderType.TEXT);
+        pinServer.on("POST", "budget/small", ex -> PinResponse.ok("read " + ex.raw().getRequestBody().readAllBytes().length),
+                pinServer.findRender(PinRenderType.TEXT), new PinRouteOptions().bodyBudget(300, 200));
+        pinServer.start();
+    }
+
+    private String post(String path, RequestBody body) throws IOException {
+        Request request = new Request.Builder()
+                .url(PinBlockingFixture.URL + path)
+                .post(body)
+                .build();
+
+        try (Response response = fixture.getClient().newCall(request).execute()) {
+            return response.code() + " " + response.body().string();
+        }
+    }
+
+    private static RequestBody chunked(int size) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return OCTET_STREAM;
+            }
+
+            @Override
+            public long contentLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.write(new byte[size]);
+            }
+        };
+    }
+
+    @Test
+    public void bodiesUnderMaxAreRead() throws IOException {
+        assertEquals("200 read 100", post("budget/read", RequestBody.create(new byte[100], OCTET_STREAM)));
+        assertEquals("200 read 500", post("budget/read", chunked(500)));
+    }
+
+    @Test
+    public void bodiesOverMaxAreRejected() throws IOException {
+        assertEquals("413 Request body too large",
+                post("budget/read", RequestBody.create(new byte[700], OCTET_STREAM)));
+        assertEquals("413 Request body too large",
+                post("budget/small", RequestBody.create(new byte[250], OCTET_STREAM)));
+        assertTrue(post("budget/read", chunked(700)).startsWith("413"));
+    }
+
+    @Test
+    public void exhaustedBudgetAnswers503() throws Exception {
+        CompletableFuture<String> holding = CompletableFuture.supplyAsync(() -> {
+            try {
+                return post("budget/hold", RequestBody.create(new byte[600], OCTET_STREAM));
+            } catch (IOException e) {
+                return e.toString();
+            }
+        });
+        try {
+            assertTrue(fixture.awaitStarted());
+            assertTrue(post("budget/read", RequestBody.create(new byte[500], OCTET_STREAM))
+                    .startsWith("503"));
+            //a request without body does not need budget
+            assertEquals("200 read 0", post("budget/read", RequestBody.create(new byte[0], OCTET_STREAM)));
+        } finally {
+            fixture.release();
+        }
+        assertEquals("200 read 600", holding.get(5, TimeUnit.SECONDS));
+        //the budget is given back after the exchange is closed, so the client may see the response a bit earlier
+        String afterRelease = post("budget/read", RequestBody.create(new byte[500], OCTET_STREAM));
+        for (int i = 0; i < 100 && afterRelease.startsWith("503"); i++) {
+            Thread.sleep(10);
+            afterRelease = post("budget/read", RequestBody.create(new byte[500], OCTET_STREAM));
+        }
+        assertEquals("200 read 500", afterRelease);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.pinframework.exceptions.PinInitializationException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerBulkheadIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .workerPool("reports", 1, 1)
+                .build();
+        pinServer.on("GET", "reports", ex -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return PinResponse.ok("report");
+        }, pinServer.findRender(PinRenderType.TEXT), new PinRouteOptions().workerPool("reports"));
+        pinServer.onGet("ping", PinResponse.ok("pong"), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    private Response get(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+        return client.newCall(request).execute();
+    }
+
+    private int getCode(String url) throws IOException {
+        try (Response response = get(url)) {
+            response.body().string();
+            return response.code();
+        }
+    }
+
+    @Test
+    public void slowPoolDoesNotStarveOthers() throws Exception {
+        PinWorkerPool reports = pinServer.getWorkerPools().stream()
+                .filter(workerPool -> workerPool.getName().equals("reports"))
+                .findFirst()
+                .get();
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> running = clients.submit(() -> getCode("http://localhost:9999/reports"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Integer> queued = clients.submit(() -> getCode("http://localhost:9999/reports"));
+            for (int i = 0; i < 500 && reports.getQueueSize() < 1; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, reports.getQueueSize());
+
+            assertEquals(503, getCode("http://localhost:9999/reports"));
+            try (Response response = get("http://localhost:9999/ping")) {
+                assertEquals(200, response.code());
+                assertEquals("pong", response.body().string());
+            }
+            assertEquals(1, reports.getShed());
+
+            release.countDown();
+            assertEquals(200, running.get(5, TimeUnit.SECONDS));
+            assertEquals(200, queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void unknownWorkerPool() {
+        assertThrows(PinInitializationException.class, () -> pinServer.on("GET", "unknown", ex -> PinResponse.ok(null),
+                pinServer.findRender(PinRenderType.TEXT), new PinRouteOptions().workerPool("unknown")));
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
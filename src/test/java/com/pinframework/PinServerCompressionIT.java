@@ -0,0 +1,143 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerCompressionIT {
+
+    private static final String SMALL = "small enough to go as it is";
+
+    private PinServer pinServer;
+    private String big;
+    private String huge;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() {
+        big = "compress me please ".repeat(200);
+        //random letters do not compress much, so the compressed body is still bigger than the response buffer
+        Random random = new Random(7);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        huge = builder.toString();
+
+        pinServer = new PinServerBuilder().compression(256).build();
+        pinServer.onGet("compression/big", PinResponse.ok(big), PinRenderType.TEXT);
+        pinServer.onGet("compression/huge", PinResponse.ok(huge), PinRenderType.TEXT);
+        pinServer.onGet("compression/small", PinResponse.ok(SMALL), PinRenderType.TEXT);
+        pinServer.on("GET", "compression/off", ex -> PinResponse.ok(big),
+                pinServer.findRender(PinRenderType.TEXT), new PinRouteOptions().compression(false));
+        pinServer.start();
+    }
+
+    private Response get(String path, String acceptEncoding) throws IOException {
+        Request.Builder builder = new Request.Builder().url("http://localhost:9999/" + path);
+        //setting Accept-Encoding by hand stops okhttp from decompressing by itself
+        builder.header("Accept-Encoding", acceptEncoding == null ? "identity" : acceptEncoding);
+        return client.newCall(builder.build()).execute();
+    }
+
+    private static String decode(InputStream is) throws IOException {
+        try (InputStream decoding = is) {
+            return new String(decoding.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void compressesWithGzip() throws IOException {
+        try (Response response = get("compression/big", "gzip, deflate")) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("gzip", response.header("Content-Encoding"));
+            assertEquals("Accept-Encoding", response.header("Vary"));
+            byte[] body = response.body().bytes();
+            assertEquals(String.valueOf(body.length), response.header("Content-Length"));
+            assertTrue(body.length < big.length() / 4, "compressed to " + body.length);
+            assertEquals(big, decode(new GZIPInputStream(new ByteArrayInputStream(body))));
+        }
+    }
+
+    @Test
+    public void compressesWithDeflate() throws IOException {
+        try (Response response = get("compression/big", "gzip;q=0.5, deflate")) {
+            assertEquals("deflate", response.header("Content-Encoding"));
+            assertEquals(big, decode(new InflaterInputStream(response.body().byteStream())));
+        }
+    }
+
+    @Test
+    public void compressesBigBodiesChunked() throws IOException {
+        try (Response response = get("compression/huge", "gzip")) {
+            assertEquals("gzip", response.header("Content-Encoding"));
+            assertNull(response.header("Content-Length"));
+            assertEquals(huge, decode(new GZIPInputStream(response.body().byteStream())));
+        }
+    }
+
+    @Test
+    public void sendsAsItIsToClientsThatDoNotAccept() throws IOException {
+        try (Response response = get("compression/big", null)) {
+            assertNull(response.header("Content-Encoding"));
+            assertEquals("Accept-Encoding", response.header("Vary"));
+            assertEquals(big, response.body().string());
+        }
+    }
+
+    @Test
+    public void sendsSmallBodiesAsTheyAre() throws IOException {
+        try (Response response = get("compression/small", "gzip")) {
+            assertNull(response.header("Content-Encoding"));
+            assertEquals(String.valueOf(SMALL.length()), response.header("Content-Length"));
+            assertEquals(SMALL, response.body().string());
+        }
+    }
+
+    @Test
+    public void routesCanTurnItOff() throws IOException {
+        try (Response response = get("compression/off", "gzip")) {
+            assertNull(response.header("Content-Encoding"));
+            assertNull(response.header("Vary"));
+            assertEquals(big, response.body().string());
+        }
+    }
+
+    @Test
+    public void recordsRatioAndTime() throws IOException {
+        long responsesBefore = pinServer.getCompression().getResponses();
+        long inputBefore = pinServer.getCompression().getInputBytes();
+        long outputBefore = pinServer.getCompression().getOutputBytes();
+        get("compression/big", "gzip").close();
+        PinCompression compression = pinServer.getCompression();
+        assertEquals(responsesBefore + 1, compression.getResponses());
+        assertEquals(big.length(), compression.getInputBytes() - inputBefore);
+        assertTrue(compression.getOutputBytes() - outputBefore < big.length() / 4);
+        assertTrue(compression.getDeflateNanos() > 0);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+}
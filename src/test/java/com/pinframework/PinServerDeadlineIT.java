@@ -0,0 +1,91 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerDeadlineIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final CompletableFuture<PinResponse> neverCompleted = new CompletableFuture<>();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .deadlineMillis(200)
+                .build();
+        PinRender text = pinServer.findRender(PinRenderType.TEXT);
+        pinServer.onGet("deadline/stuck", ex -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException ie) {
+                interrupted.countDown();
+                throw ie;
+            }
+            return PinResponse.ok("too late");
+        }, PinRenderType.TEXT);
+        pinServer.onAsync("GET", "deadline/stuck-async", ex -> neverCompleted, text);
+        pinServer.onGet("deadline/remaining", ex -> PinResponse.ok(ex.getRemainingMillis() <= 200 && !ex.isExpired()),
+                PinRenderType.TEXT);
+        pinServer.on("GET", "deadline/none", ex -> PinResponse.ok(ex.getRemainingMillis() == Long.MAX_VALUE), text,
+                new PinRouteOptions().deadlineMillis(0));
+        pinServer.start();
+    }
+
+    private String get(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            return response.code() + " " + response.body().string();
+        }
+    }
+
+    @Test
+    public void stuckHandlerIsInterrupted() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        String response = get("http://localhost:9999/deadline/stuck");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(response.startsWith("504 "), response);
+        assertTrue(elapsedMillis < 5_000, "took " + elapsedMillis + " ms");
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stuckFutureIsCancelled() throws IOException {
+        String response = get("http://localhost:9999/deadline/stuck-async");
+        assertTrue(response.startsWith("504 "), response);
+        assertTrue(neverCompleted.isCancelled());
+    }
+
+    @Test
+    public void remainingTime() throws IOException {
+        assertEquals("200 true", get("http://localhost:9999/deadline/remaining"));
+        assertEquals("200 true", get("http://localhost:9999/deadline/none"));
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
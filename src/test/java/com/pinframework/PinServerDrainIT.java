@@ -0,0 +1,95 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class PinServerDrainIT {
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    private String get(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            return response.code() + " " + response.body().string();
+        }
+    }
+
+    @Test
+    public void waitsForRunningRequests() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean streamClosed = new AtomicBoolean(false);
+        PinServer pinServer = new PinServerBuilder().build();
+        pinServer.onGet("drain/slow", ex -> {
+            started.countDown();
+            Thread.sleep(500);
+            return PinResponse.ok("done");
+        }, PinRenderType.TEXT);
+        pinServer.onGet("drain/stream", ex -> {
+            ex.registerOpenStream(() -> streamClosed.set(true));
+            return PinResponse.ok("streaming");
+        }, PinRenderType.TEXT);
+        pinServer.start();
+
+        assertEquals("200 streaming", get("http://localhost:9999/drain/stream"));
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> {
+            try {
+                return get("http://localhost:9999/drain/slow");
+            } catch (IOException e) {
+                return e.toString();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        PinDrainReport report = pinServer.drain(5);
+
+        assertEquals("200 done", slow.get(5, TimeUnit.SECONDS));
+        assertTrue(report.isClean(), report.toString());
+        assertEquals(1, report.getOpenStreamsClosed());
+        assertTrue(streamClosed.get());
+    }
+
+    @Test
+    public void cutsOffWhenTimeIsOver() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        PinServer pinServer = new PinServerBuilder().build();
+        pinServer.onGet("drain/stuck", ex -> {
+            started.countDown();
+            Thread.sleep(3_000);
+            return PinResponse.ok("too late");
+        }, PinRenderType.TEXT);
+        pinServer.start();
+
+        CompletableFuture<String> stuck = CompletableFuture.supplyAsync(() -> {
+            try {
+                return get("http://localhost:9999/drain/stuck");
+            } catch (IOException e) {
+                return e.toString();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        PinDrainReport report = pinServer.drain(1);
+
+        assertFalse(report.isClean());
+        assertEquals(1, report.getRequestsCutOff());
+        assertTrue(report.getElapsedMillis() < 3_000, report.toString());
+        assertFalse(stuck.get(5, TimeUnit.SECONDS).startsWith("200"));
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerFairQueuingIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(1, 10)
+                .fairQueuing(PinFairKey.byHeader("X-Tenant"), 1)
+                .build();
+        pinServer.onGet("fair/slow", ex -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return PinResponse.ok("done");
+        }, PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    private int get(String tenant) throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/fair/slow")
+                .header("X-Tenant", tenant)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+            return response.code();
+        }
+    }
+
+    private void awaitQueueSize(PinWorkerPool workerPool, int queueSize) throws InterruptedException {
+        for (int i = 0; i < 500 && workerPool.getQueueSize() < queueSize; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(queueSize, workerPool.getQueueSize());
+    }
+
+    @Test
+    public void noisyTenantOnlyFillsItsOwnQueue() throws Exception {
+        PinWorkerPool workerPool = pinServer.getWorkerPools().get(0);
+        ExecutorService clients = Executors.newFixedThreadPool(3);
+        try {
+            Future<Integer> running = clients.submit(() -> get("noisy"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Integer> noisyQueued = clients.submit(() -> get("noisy"));
+            awaitQueueSize(workerPool, 1);
+
+            assertEquals(503, get("noisy"));
+
+            Future<Integer> quietQueued = clients.submit(() -> get("quiet"));
+            awaitQueueSize(workerPool, 2);
+            assertEquals(1, workerPool.getShed());
+
+            release.countDown();
+            assertEquals(200, running.get(5, TimeUnit.SECONDS));
+            assertEquals(200, noisyQueued.get(5, TimeUnit.SECONDS));
+            assertEquals(200, quietQueued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            clients.shutdown();
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.pinframework;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -8,6 +10,7 @@ import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Random;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -25,6 +28,8 @@ public class PinServerGetStaticIT {
 
     private final OkHttpClient client = new OkHttpClient();
 
+    private byte[] bigFileContent;
+
     @BeforeAll
     public void setup() throws IOException {
         Path tempDirectory = Files.createTempDirectory("prefix");
@@ -39,6 +44,10 @@ public class PinServerGetStaticIT {
         Files.write(customFilePath, "custom.xxx content".getBytes(StandardCharsets.UTF_8));
         pinServer.registerMimeType("xxx", "custom/xxx");
 
+        bigFileContent = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(bigFileContent);
+        Files.write(Path.of(tempDirectory.toString(), "big.bin"), bigFileContent);
+
         pinServer.onGet("constant-text", PinResponse.ok("this is the constant text"), PinRenderType.TEXT);
         pinServer.start();
     }
@@ -82,6 +91,20 @@ public class PinServerGetStaticIT {
         }
     }
 
+    @Test
+    public void getBigFileFromExternalFolderWithContentLength() throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/big.bin")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals(String.valueOf(bigFileContent.length), response.header("Content-Length"));
+            assertNull(response.header("Transfer-Encoding"));
+            assertArrayEquals(bigFileContent, response.body().bytes());
+        }
+    }
+
     @Test
     public void getFromExternalFolderByDefault() throws IOException {
         Request request = new Request.Builder()
@@ -0,0 +1,66 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerHotRoutesIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder().build();
+        pinServer.onGet("features/stable", PinResponse.ok("stable"), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    private int get(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+
+    @Test
+    public void addAndRemoveRoutesWhileRunning() throws IOException {
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, get("http://localhost:9999/flagged/1"));
+
+        pinServer.onGet("flagged/:id", ex -> PinResponse.ok("flagged " + ex.getPathParam("id")), PinRenderType.TEXT);
+        pinServer.onGet("features/beta", PinResponse.ok("beta"), PinRenderType.TEXT);
+        assertEquals(HttpURLConnection.HTTP_OK, get("http://localhost:9999/flagged/1"));
+        assertEquals(HttpURLConnection.HTTP_OK, get("http://localhost:9999/features/beta"));
+
+        assertTrue(pinServer.off("GET", "flagged/:id"));
+        assertTrue(pinServer.off("GET", "features/beta"));
+        assertFalse(pinServer.off("GET", "features/beta"));
+
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, get("http://localhost:9999/flagged/1"));
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, get("http://localhost:9999/features/beta"));
+        assertEquals(HttpURLConnection.HTTP_OK, get("http://localhost:9999/features/stable"));
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerLoadSheddingIT {
+
+    private PinServer pinServer;
+
+    private final PinBlockingFixture fixture = new PinBlockingFixture();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(1, 1)
+                .retryAfterSeconds(3)
+                .build();
+        pinServer.onGet("slow", fixture.blocking(), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    @Test
+    public void shedWhenQueueIsFull() throws Exception {
+        PinWorkerPool workerPool = pinServer.getWorkerPools().get(0);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = clients.submit(() -> fixture.get("slow"));
+            assertTrue(fixture.awaitStarted());
+            Future<String> queued = clients.submit(() -> fixture.get("slow"));
+            PinBlockingFixture.awaitQueueSize(workerPool, 1);
+
+            Request request = new Request.Builder()
+                    .url(PinBlockingFixture.URL + "slow")
+                    .build();
+            try (Response response = fixture.getClient().newCall(request).execute()) {
+                assertEquals(503, response.code());
+                assertEquals("3", response.header("Retry-After"));
+                assertEquals("Service unavailable, try again later", response.body().string());
+            }
+            assertEquals(1, workerPool.getShed());
+
+            fixture.release();
+            assertEquals("200 done", running.get(5, TimeUnit.SECONDS));
+            assertEquals("200 done", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            fixture.release();
+            clients.shutdown();
+        }
+
+        PinRouteStats stats = pinServer.getRouteStats("GET", "slow");
+        //stats are recorded after the exchange is closed, so the client may see the response a bit earlier
+        for (int i = 0; i < 100 && stats.getRequests() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, stats.getRequests());
+        assertEquals(2, stats.getResponses(2));
+        assertEquals(1, stats.getResponses(5));
+        assertEquals(3, workerPool.getDispatched());
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerMetricsIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder().metricsPath("metrics").build();
+        pinServer.onGet("constant-text", PinResponse.ok("this is the constant text"), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    @Test
+    public void getMetrics() throws IOException {
+        Request textRequest = new Request.Builder()
+                .url("http://localhost:9999/constant-text")
+                .build();
+        try (Response response = client.newCall(textRequest).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+        }
+
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/metrics")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals(PinContentType.TEXT_PLAIN_PROMETHEUS, response.header(PinContentType.CONTENT_TYPE));
+            String body = response.body().string();
+            assertTrue(body.contains("# TYPE pin_requests_total counter\n"), body);
+            assertTrue(body.contains("pin_routes 2\n"), body);
+            assertTrue(body.contains("pin_requests_total{method=\"GET\",path=\"/constant-text\"} 1\n"), body);
+            assertTrue(body.contains("pin_responses_total{method=\"GET\",path=\"/constant-text\",code=\"2xx\"} 1\n"), body);
+            assertTrue(body.contains("pin_request_duration_seconds_bucket{method=\"GET\",path=\"/constant-text\",le=\"+Inf\"} 1\n"),
+                    body);
+            assertTrue(body.contains("pin_request_duration_seconds_count{method=\"GET\",path=\"/constant-text\"} 1\n"), body);
+            //the metrics request itself is running
+            assertTrue(body.contains("pin_worker_pool_active_threads{pool=\"default\"} 1\n"), body);
+            assertTrue(body.contains("# TYPE pin_worker_pool_wait_seconds histogram\n"), body);
+            assertTrue(body.contains("pin_worker_pool_wait_seconds_count{pool=\"default\"} 2\n"), body);
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
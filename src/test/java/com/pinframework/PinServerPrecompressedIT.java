@@ -0,0 +1,140 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerPrecompressedIT {
+
+    private static final String SCRIPT = "console.log('this is the script');";
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() throws Exception {
+        Path tempDirectory = Files.createTempDirectory("precompressed");
+        Files.write(tempDirectory.resolve("app.js"), SCRIPT.getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDirectory.resolve("app.js.gz"), gzip(SCRIPT.getBytes(StandardCharsets.UTF_8)));
+
+        pinServer = new PinServerBuilder().externalFolder(tempDirectory.toAbsolutePath().toString())
+                .webjarsSupportEnabled(true)
+                .staticPrecompression(true)
+                .staticCache(32L * 1024 * 1024, 1024 * 1024)
+                .build();
+        //registered after build, before start
+        pinServer.registerMimeType("pinlog", "text/plain");
+        pinServer.start();
+        assertTrue(pinServer.getStaticPrecompressor().awaitDone(30, TimeUnit.SECONDS));
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(content);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] content) throws IOException {
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return is.readAllBytes();
+        }
+    }
+
+    private Response get(String path, String acceptEncoding) throws IOException {
+        //setting Accept-Encoding by hand stops okhttp from decompressing by itself
+        return client.newCall(new Request.Builder()
+                .url("http://localhost:9999/" + path)
+                .header("Accept-Encoding", acceptEncoding)
+                .build()).execute();
+    }
+
+    @Test
+    public void sendsGzipSidecarToClientsThatAcceptIt() throws IOException {
+        try (Response response = get("app.js", "gzip, deflate")) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("gzip", response.header("Content-Encoding"));
+            assertEquals("Accept-Encoding", response.header("Vary"));
+            assertEquals("application/javascript", response.header(PinContentType.CONTENT_TYPE));
+            assertEquals(SCRIPT, new String(gunzip(response.body().bytes()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void sendsIdentityToTheRest() throws IOException {
+        String gzipEtag;
+        try (Response response = get("app.js", "gzip")) {
+            gzipEtag = response.header("ETag");
+        }
+        try (Response response = get("app.js", "gzip;q=0, identity")) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertNull(response.header("Content-Encoding"));
+            assertEquals("Accept-Encoding", response.header("Vary"));
+            assertNotEquals(gzipEtag, response.header("ETag"));
+            assertEquals(SCRIPT, response.body().string());
+        }
+    }
+
+    @Test
+    public void precompressesRegisteredMimeTypes() throws IOException {
+        try (Response response = get("notes.pinlog", "gzip")) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("gzip", response.header("Content-Encoding"));
+            assertTrue(new String(gunzip(response.body().bytes()), StandardCharsets.UTF_8).startsWith("0000 the"));
+        }
+    }
+
+    @Test
+    public void doesNotVaryForCompressedTypes() throws IOException {
+        try (Response response = get("webjars/envjs/1.2/env.rhino.gif", "gzip")) {
+            assertNull(response.header("Vary"));
+        }
+    }
+
+    @Test
+    public void sendsPrecompressedResources() throws IOException {
+        byte[] identity;
+        try (Response response = get("webjars/envjs/1.2/env.rhino.js", "identity")) {
+            assertNull(response.header("Content-Encoding"));
+            identity = response.body().bytes();
+        }
+        try (Response response = get("webjars/envjs/1.2/env.rhino.js", "gzip")) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("gzip", response.header("Content-Encoding"));
+            byte[] compressed = response.body().bytes();
+            assertTrue(compressed.length < identity.length);
+            assertArrayEquals(identity, gunzip(compressed));
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+}
@@ -0,0 +1,82 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import com.pinframework.exceptions.PinInitializationException;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerPriorityLaneIT {
+
+    private PinServer pinServer;
+
+    private final PinBlockingFixture fixture = new PinBlockingFixture();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(1, 1)
+                .build();
+        pinServer.onGet("lane/slow", fixture.blocking(), PinRenderType.TEXT);
+        pinServer.on("GET", "lane/health", ex -> PinResponse.ok("alive"), pinServer.findRender(PinRenderType.TEXT),
+                new PinRouteOptions().priority(PinRoutePriority.HIGH));
+        pinServer.start();
+    }
+
+    @Test
+    public void highPriorityRouteDoesNotQueue() throws Exception {
+        PinWorkerPool defaultPool = pinServer.getWorkerPools().get(0);
+        PinWorkerPool priorityLane = pinServer.getWorkerPools().get(1);
+        assertEquals(PinWorkerPool.PRIORITY_NAME, priorityLane.getName());
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = clients.submit(() -> fixture.get("lane/slow"));
+            assertTrue(fixture.awaitStarted());
+            Future<String> queued = clients.submit(() -> fixture.get("lane/slow"));
+            PinBlockingFixture.awaitQueueSize(defaultPool, 1);
+            assertTrue(fixture.get("lane/slow").startsWith("503"));
+
+            assertEquals("200 alive", fixture.get("lane/health"));
+            assertEquals("200 alive", fixture.get("lane/health"));
+
+            fixture.release();
+            assertEquals("200 done", running.get(5, TimeUnit.SECONDS));
+            assertEquals("200 done", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            fixture.release();
+            clients.shutdown();
+        }
+        assertEquals(2, priorityLane.getDispatched());
+        assertEquals(0, priorityLane.getShed());
+        assertEquals(1, defaultPool.getShed());
+    }
+
+    @Test
+    public void highPriorityNeedsTheLane() {
+        PinServer unbounded = new PinServerBuilder().port(9998).build();
+        try {
+            PinRouteOptions high = new PinRouteOptions().priority(PinRoutePriority.HIGH);
+            assertThrows(PinInitializationException.class, () -> unbounded.on("GET", "health",
+                    ex -> PinResponse.ok("alive"), unbounded.findRender(PinRenderType.TEXT), high));
+        } finally {
+            unbounded.stop(0);
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerReadinessIT {
+
+    private PinServer pinServer;
+
+    private final PinBlockingFixture fixture = new PinBlockingFixture();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(1, 5)
+                .readinessPath("ready", 100)
+                .build();
+        pinServer.onGet("ready/slow", fixture.blocking(), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    @Test
+    public void notReadyWhileRequestsWaitTooLong() throws Exception {
+        assertEquals("200 ready", fixture.get("ready"));
+
+        PinWorkerPool workerPool = pinServer.getWorkerPools().get(0);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> running = clients.submit(() -> fixture.get("ready/slow"));
+            assertTrue(fixture.awaitStarted());
+            assertEquals(1, workerPool.getActiveCount());
+            Future<String> queued = clients.submit(() -> fixture.get("ready/slow"));
+            PinBlockingFixture.awaitQueueSize(workerPool, 1);
+            Thread.sleep(200);
+
+            String readiness = fixture.get("ready");
+            assertTrue(readiness.startsWith("503 saturated default waiting"), readiness);
+
+            fixture.release();
+            assertEquals("200 done", running.get(5, TimeUnit.SECONDS));
+            assertEquals("200 done", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            fixture.release();
+            clients.shutdown();
+        }
+        assertEquals("200 ready", fixture.get("ready"));
+        assertEquals(2, workerPool.getWaitHistogram().getCount());
+        assertTrue(workerPool.getWaitHistogram().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerResponseLengthIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .responseBufferBytes(100)
+                .build();
+        pinServer.onGet("length/small", ex -> PinResponse.ok("small"), PinRenderType.TEXT);
+        pinServer.onGet("length/big", ex -> PinResponse.ok("x".repeat(1_000)), PinRenderType.TEXT);
+        pinServer.onGet("length/empty", ex -> PinResponse.ok(), PinRenderType.TEXT);
+        pinServer.onGet("length/failing", ex -> {
+            throw new IllegalStateException("failing");
+        }, PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    private Response get(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+        return client.newCall(request).execute();
+    }
+
+    @Test
+    public void smallResponsesHaveContentLength() throws IOException {
+        try (Response response = get("http://localhost:9999/length/small")) {
+            assertEquals("5", response.header("Content-Length"));
+            assertNull(response.header("Transfer-Encoding"));
+            assertEquals("small", response.body().string());
+        }
+    }
+
+    @Test
+    public void bigResponsesAreChunked() throws IOException {
+        try (Response response = get("http://localhost:9999/length/big")) {
+            assertNull(response.header("Content-Length"));
+            assertEquals("chunked", response.header("Transfer-Encoding"));
+            assertEquals(1_000, response.body().string().length());
+        }
+    }
+
+    @Test
+    public void emptyResponsesHaveNoBody() throws IOException {
+        try (Response response = get("http://localhost:9999/length/empty")) {
+            assertEquals(200, response.code());
+            assertNull(response.header("Transfer-Encoding"));
+            assertEquals("", response.body().string());
+        }
+    }
+
+    @Test
+    public void errorsHaveContentLength() throws IOException {
+        try (Response response = get("http://localhost:9999/length/failing")) {
+            assertEquals(500, response.code());
+            String body = response.body().string();
+            assertEquals(Integer.toString(body.length()), response.header("Content-Length"));
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
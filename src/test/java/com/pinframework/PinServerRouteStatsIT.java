@@ -0,0 +1,73 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerRouteStatsIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder().build();
+        pinServer.onGet("stats/:id", ex -> {
+            Long id = ex.getPathParamAsLong("id");
+            return id == 0 ? PinResponse.notFound(null) : PinResponse.ok("stats " + id);
+        }, PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    private void get(String url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+        }
+    }
+
+    @Test
+    public void countRequests() throws IOException, InterruptedException {
+        get("http://localhost:9999/stats/1");
+        get("http://localhost:9999/stats/22");
+        get("http://localhost:9999/stats/0");
+        get("http://localhost:9999/stats/not-a-number");
+
+        PinRouteStats stats = pinServer.getRouteStats("GET", "stats/:id");
+        //stats are recorded after the exchange is closed, so the client may see the response a bit earlier
+        for (int i = 0; i < 100 && stats.getRequests() < 4; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("/stats/:id", stats.getPath());
+        assertEquals(4, stats.getRequests());
+        assertEquals(2, stats.getResponses(2));
+        assertEquals(2, stats.getResponses(4));
+        assertEquals(0, stats.getResponses(5));
+        assertTrue(stats.getBytesOut() >= "stats 1".length() + "stats 22".length());
+        assertEquals(4, stats.getLatency().getCount());
+        assertTrue(stats.getLatency().getValueAtPercentile(99) > 0);
+        assertNull(pinServer.getRouteStats("POST", "stats/:id"));
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
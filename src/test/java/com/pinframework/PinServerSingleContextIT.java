@@ -0,0 +1,127 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerSingleContextIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder().singleContextEnabled(true).appContext("app").build();
+        pinServer.onGet("constant-text", PinResponse.ok("this is the constant text"), PinRenderType.TEXT);
+        pinServer.onGet("users/:id", ex -> PinResponse.ok("user " + ex.getPathParam("id")), PinRenderType.TEXT);
+        pinServer.onGet("users/me", PinResponse.ok("me"), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    @Test
+    public void getConstantText() throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/app/constant-text")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals(PinContentType.TEXT_PLAIN_UTF8, response.header(PinContentType.CONTENT_TYPE));
+            assertEquals("this is the constant text", response.body().string());
+        }
+    }
+
+    @Test
+    public void getPathParam() throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/app/users/1234")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("user 1234", response.body().string());
+        }
+    }
+
+    @Test
+    public void getStaticBeforeParam() throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/app/users/me")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("me", response.body().string());
+        }
+    }
+
+    @Test
+    public void postToGetRouteIsWrongMethod() throws IOException {
+        Request request = new Request.Builder()
+                .post(RequestBody.create(new byte[0]))
+                .url("http://localhost:9999/app/users/1234")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_BAD_METHOD, response.code());
+        }
+    }
+
+    @Test
+    public void getFromResourceFolder() throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/app/style.css")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("text/css", response.header(PinContentType.CONTENT_TYPE));
+            assertTrue(response.body().string().startsWith("p {"));
+        }
+    }
+
+    @Test
+    public void getFromWebJar() throws IOException {
+        //envjs 1.2 is declared in pom.xml as test dependency
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/app/webjars/envjs/1.2/env.rhino.js")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("application/javascript", response.header(PinContentType.CONTENT_TYPE));
+            assertTrue(response.body().string().startsWith("/*\n"));
+        }
+    }
+
+    @Test
+    public void getNotFound() throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/app/users/1234/friends")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(HttpURLConnection.HTTP_NOT_FOUND, response.code());
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
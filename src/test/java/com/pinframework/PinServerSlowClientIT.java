@@ -0,0 +1,61 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerSlowClientIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .readTimeout(2, TimeUnit.SECONDS)
+            .build();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(1, 1)
+                .build();
+        pinServer.onGet("fast", ex -> PinResponse.ok("done"), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    @Test
+    public void slowClientDoesNotStallOtherRequests() throws IOException {
+        try (Socket slowClient = new Socket("localhost", 9999)) {
+            //half a request line, the I/O thread reading it waits for the rest
+            OutputStream out = slowClient.getOutputStream();
+            out.write("GET /fa".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            Request request = new Request.Builder()
+                    .url("http://localhost:9999/fast")
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                assertEquals(200, response.code());
+                assertEquals("done", response.body().string());
+            }
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
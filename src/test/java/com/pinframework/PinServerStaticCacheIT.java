@@ -0,0 +1,140 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerStaticCacheIT {
+
+    private PinServer pinServer;
+    private Path tempDirectory;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    @BeforeAll
+    public void setup() throws IOException {
+        tempDirectory = Files.createTempDirectory("static-cache");
+        Files.write(tempDirectory.resolve("page.html"), "<p>first</p>".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDirectory.resolve("changing.html"), "<p>before</p>".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDirectory.resolve("identity.html"), "<p>no gzip</p>".getBytes(StandardCharsets.UTF_8));
+
+        pinServer = new PinServerBuilder().externalFolder(tempDirectory.toAbsolutePath().toString())
+                .staticCache(32L * 1024 * 1024, 1024 * 1024)
+                .metricsPath("metrics")
+                .build();
+        pinServer.start();
+    }
+
+    private Response get(String path, String header, String value) throws IOException {
+        Request.Builder builder = new Request.Builder().url("http://localhost:9999/" + path);
+        if (header != null) {
+            builder.header(header, value);
+        }
+        return client.newCall(builder.build()).execute();
+    }
+
+    @Test
+    public void answersNotModifiedForKnownEtag() throws IOException {
+        String etag;
+        try (Response response = get("page.html", null, null)) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("<p>first</p>", response.body().string());
+            etag = response.header("ETag");
+            assertNotNull(etag);
+            assertNotNull(response.header("Last-Modified"));
+        }
+        try (Response response = get("page.html", "If-None-Match", etag)) {
+            assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, response.code());
+            assertEquals(etag, response.header("ETag"));
+        }
+        try (Response response = get("page.html", "If-None-Match", "\"something else\"")) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            assertEquals("<p>first</p>", response.body().string());
+        }
+    }
+
+    @Test
+    public void answersNotModifiedForLastModified() throws IOException {
+        String lastModified;
+        try (Response response = get("style.css", null, null)) {
+            assertEquals(HttpURLConnection.HTTP_OK, response.code());
+            lastModified = response.header("Last-Modified");
+            assertNotNull(lastModified);
+        }
+        try (Response response = get("style.css", "If-Modified-Since", lastModified)) {
+            assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, response.code());
+            assertNull(response.header("Content-Length"));
+        }
+    }
+
+    @Test
+    public void readsChangedExternalFilesAgain() throws Exception {
+        try (Response response = get("changing.html", null, null)) {
+            assertEquals("<p>before</p>", response.body().string());
+        }
+        Files.write(tempDirectory.resolve("changing.html"), "<p>after it changed</p>".getBytes(StandardCharsets.UTF_8));
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(PinStaticCache.RECHECK_NANOS) + 100);
+        try (Response response = get("changing.html", null, null)) {
+            assertEquals("<p>after it changed</p>", response.body().string());
+        }
+    }
+
+    @Test
+    public void gzipClientsGetTheCachedIdentityFile() throws Exception {
+        PinStaticCache staticCache = pinServer.getStaticCache();
+        try (Response response = get("identity.html", "Accept-Encoding", "gzip")) {
+            assertEquals("<p>no gzip</p>", response.body().string());
+        }
+        long hits = staticCache.getHits();
+        long misses = staticCache.getMisses();
+        for (int i = 0; i < 3; i++) {
+            try (Response response = get("identity.html", "Accept-Encoding", "gzip")) {
+                assertNull(response.header("Content-Encoding"));
+                assertEquals("<p>no gzip</p>", response.body().string());
+            }
+        }
+        assertEquals(hits + 3, staticCache.getHits());
+        assertEquals(misses, staticCache.getMisses());
+
+        //a .gz next to it is noticed like any other change
+        Files.write(tempDirectory.resolve("identity.html.gz"), "not really gzip".getBytes(StandardCharsets.UTF_8));
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(PinStaticCache.RECHECK_NANOS) + 100);
+        try (Response response = get("identity.html", "Accept-Encoding", "gzip")) {
+            assertEquals("gzip", response.header("Content-Encoding"));
+        }
+    }
+
+    @Test
+    public void exportsMetrics() throws IOException {
+        get("page.html", null, null).close();
+        get("page.html", null, null).close();
+        try (Response response = get("metrics", null, null)) {
+            String metrics = response.body().string();
+            assertTrue(metrics.contains("pin_static_cache_hits_total "), metrics);
+            assertTrue(metrics.contains("pin_static_cache_bytes "), metrics);
+        }
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+}
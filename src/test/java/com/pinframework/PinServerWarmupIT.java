@@ -0,0 +1,75 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PinServerWarmupIT {
+
+    private PinServer pinServer;
+
+    private final OkHttpClient client = new OkHttpClient();
+
+    private final AtomicInteger getCalls = new AtomicInteger();
+    private final AtomicInteger postCalls = new AtomicInteger();
+    private final AtomicInteger postNames = new AtomicInteger();
+
+    @BeforeAll
+    public void setup() {
+        pinServer = new PinServerBuilder()
+                .boundedExecutor(2, 10)
+                .warmupIterations(20)
+                .build();
+        pinServer.on("GET", "warm/users/:id", ex -> {
+            getCalls.incrementAndGet();
+            return PinResponse.ok(Collections.singletonMap("id", ex.getPathParam("id")));
+        }, pinServer.findRender(PinRenderType.JSON), new PinRouteOptions().warmupRequest("warm/users/1?details=true"));
+        pinServer.on("POST", "warm/users", ex -> {
+            postCalls.incrementAndGet();
+            if ("pin".equals(ex.getPostParams().get("name"))) {
+                postNames.incrementAndGet();
+            }
+            return PinResponse.created("ok");
+        }, pinServer.findRender(PinRenderType.JSON),
+                new PinRouteOptions().warmupRequest("warm/users", "{\"name\":\"pin\"}", "application/json"));
+        pinServer.onGet("warm/cold", ex -> PinResponse.ok("cold"), PinRenderType.TEXT);
+        pinServer.start();
+    }
+
+    @Test
+    public void samplesRunBeforeStartAndStatsAreReset() throws IOException {
+        assertEquals(20, getCalls.get());
+        assertEquals(20, postCalls.get());
+        assertEquals(20, postNames.get());
+        assertEquals(0, pinServer.getRouteStats("GET", "warm/users/:id").getRequests());
+        assertEquals(0, pinServer.getRouteStats("POST", "warm/users").getRequests());
+        assertEquals(0, pinServer.getWorkerPools().get(0).getDispatched());
+
+        Request request = new Request.Builder()
+                .url("http://localhost:9999/warm/users/7")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("{\"id\":\"7\"}", response.body().string());
+        }
+        assertEquals(21, getCalls.get());
+    }
+
+    @AfterAll
+    public void tearDown() {
+        pinServer.stop(1);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+
+public class PinStaticCacheTest {
+
+    private static PinStaticCache.Entry resource(String body) {
+        return PinStaticCache.Entry.ofResource(body.getBytes(StandardCharsets.UTF_8), 1_600_000_000_123L, null);
+    }
+
+    private static Headers headers(String name, String value) {
+        Headers headers = new Headers();
+        headers.add(name, value);
+        return headers;
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        PinStaticCache cache = new PinStaticCache(10, 5);
+        cache.put("a", resource("aaaa"));
+        cache.put("b", resource("bbbb"));
+        cache.get("a");
+        cache.put("c", resource("cccc"));
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", new String(cache.get("a").getBody(), StandardCharsets.UTF_8));
+        assertEquals(8, cache.getBytes());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void doesNotKeepBigEntries() {
+        PinStaticCache cache = new PinStaticCache(10, 5);
+        assertFalse(cache.fits(6));
+        assertFalse(cache.fits(-1));
+        cache.put("big", resource("123456"));
+        assertNull(cache.get("big"));
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void etagDependsOnContent() {
+        assertEquals(resource("same").getEtag(), resource("same").getEtag());
+        assertNotEquals(resource("same").getEtag(), resource("other").getEtag());
+        assertTrue(resource("same").getEtag().startsWith("\""));
+    }
+
+    @Test
+    public void answersConditionalHeaders() {
+        PinStaticCache.Entry entry = resource("body");
+        assertEquals("Sun, 13 Sep 2020 12:26:40 GMT", entry.getLastModified());
+        assertTrue(PinStaticCache.isNotModified(headers("If-None-Match", "\"x\", " + entry.getEtag()), entry));
+        assertTrue(PinStaticCache.isNotModified(headers("If-None-Match", "W/" + entry.getEtag()), entry));
+        assertTrue(PinStaticCache.isNotModified(headers("If-None-Match", "*"), entry));
+        assertFalse(PinStaticCache.isNotModified(headers("If-None-Match", "\"x\""), entry));
+        assertTrue(PinStaticCache.isNotModified(headers("If-Modified-Since", entry.getLastModified()), entry));
+        assertFalse(PinStaticCache.isNotModified(headers("If-Modified-Since", "Sun, 13 Sep 2020 12:26:39 GMT"),
+                entry));
+        assertFalse(PinStaticCache.isNotModified(headers("If-Modified-Since", "yesterday"), entry));
+        assertFalse(PinStaticCache.isNotModified(new Headers(), entry));
+
+        Headers both = headers("If-None-Match", "\"x\"");
+        both.add("If-Modified-Since", entry.getLastModified());
+        assertFalse(PinStaticCache.isNotModified(both, entry));
+    }
+
+    @Test
+    public void dropsChangedExternalFiles() throws Exception {
+        File file = Files.createTempFile("pin-static-cache", ".txt").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+        PinStaticCache cache = new PinStaticCache(100, 10);
+        PinStaticCache.Entry entry = PinStaticCache.Entry.ofExternalFile(Files.readAllBytes(file.toPath()),
+                file.lastModified(), file);
+        cache.put("file", entry);
+
+        Files.write(file.toPath(), "changed!".getBytes(StandardCharsets.UTF_8));
+        //not looked at again until a second went by
+        assertSame(entry, cache.get("file"));
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(PinStaticCache.RECHECK_NANOS) + 100);
+        assertNull(cache.get("file"));
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void missingEntriesAreNeverSent() throws Exception {
+        File gzipFile = new File(Files.createTempDirectory("pin-static-cache").toFile(), "file.txt.gz");
+        PinStaticCache cache = new PinStaticCache(100, 10);
+        cache.put("file.txt.gz", PinStaticCache.Entry.missing(gzipFile));
+        assertTrue(cache.isMissing("file.txt.gz"));
+        assertFalse(cache.isMissing("other.txt.gz"));
+        assertNull(cache.get("file.txt.gz"));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getBytes());
+
+        //the variant showed up
+        Files.write(gzipFile.toPath(), "gzip".getBytes(StandardCharsets.UTF_8));
+        gzipFile.deleteOnExit();
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(PinStaticCache.RECHECK_NANOS) + 100);
+        assertFalse(cache.isMissing("file.txt.gz"));
+    }
+}
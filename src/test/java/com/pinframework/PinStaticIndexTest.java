@@ -0,0 +1,75 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class PinStaticIndexTest {
+
+    private final PinStaticIndex index = PinStaticIndex.build(PinStaticIndexTest.class.getClassLoader(),
+            PinServer.STATIC_FOLDER, PinServer.WEBJARS_FOLDER);
+
+    @Test
+    public void indexesFolders() throws IOException {
+        PinStaticIndex.Resource resource = index.find("static/style.css");
+        assertNotNull(resource);
+        assertTrue(resource.getLastModified() > 0);
+        try (InputStream is = resource.getUrl().openStream()) {
+            assertEquals(resource.getSize(), is.readAllBytes().length);
+        }
+    }
+
+    @Test
+    public void indexesJars() throws IOException {
+        //envjs 1.2 is declared in pom.xml as test dependency
+        PinStaticIndex.Resource resource = index.find("META-INF/resources/webjars/envjs/1.2/env.rhino.js");
+        assertNotNull(resource);
+        assertEquals("jar", resource.getUrl().getProtocol());
+        try (InputStream is = resource.getUrl().openStream()) {
+            assertEquals(resource.getSize(), is.readAllBytes().length);
+        }
+    }
+
+    @Test
+    public void doesNotHaveMissingResourcesNorFolders() {
+        assertNull(index.find("static/missing.css"));
+        assertNull(index.find("static/"));
+        assertNull(index.find("META-INF/resources/webjars/envjs/1.2"));
+        assertNull(index.find("META-INF/MANIFEST.MF"));
+    }
+
+    @Test
+    public void indexesJarsWithoutDirectoryEntries() throws IOException {
+        //like the ones zip or some shade setups build, getResources("static/") does not find them
+        File jar = Files.createTempFile("no-directories", ".jar").toFile();
+        jar.deleteOnExit();
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+            zip.putNextEntry(new ZipEntry("static/js/zipped.js"));
+            zip.write("var zipped = true;".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null)) {
+            assertNull(classLoader.getResource("static/"));
+            PinStaticIndex jarIndex = PinStaticIndex.build(classLoader, PinServer.STATIC_FOLDER);
+            PinStaticIndex.Resource resource = jarIndex.find("static/js/zipped.js");
+            assertNotNull(resource);
+            try (InputStream is = resource.getUrl().openStream()) {
+                assertEquals("var zipped = true;", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            assertNull(jarIndex.find("static/js/missing.js"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class PinTimerWheelTest {
+
+    private final PinTimerWheel wheel = new PinTimerWheel(TimeUnit.MILLISECONDS.toNanos(1), 8);
+
+    @AfterEach
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    public void runsAfterDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void runsAfterSeveralRounds() throws InterruptedException {
+        //8 buckets of 1 ms, so 30 ms needs several turns of the wheel
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void cancelled() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch notCancelled = new CountDownLatch(1);
+        wheel.schedule(cancelled::countDown, TimeUnit.MILLISECONDS.toNanos(10)).cancel();
+        wheel.schedule(notCancelled::countDown, TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(notCancelled.await(2, TimeUnit.SECONDS));
+        assertFalse(cancelled.await(20, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void parksWhileEmpty() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 200 && !wheel.isParked(); i++) {
+            Thread.sleep(5);
+        }
+        assertTrue(wheel.isParked());
+
+        CountDownLatch again = new CountDownLatch(1);
+        wheel.schedule(again::countDown, TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(again.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stopsAndStartsAgain() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(wheel.isRunning());
+        //the pending timeout still runs
+        wheel.stop();
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 200 && wheel.isRunning(); i++) {
+            Thread.sleep(5);
+        }
+        assertFalse(wheel.isRunning());
+
+        CountDownLatch again = new CountDownLatch(1);
+        wheel.schedule(again::countDown, TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(again.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void wheelSizeMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new PinTimerWheel(1, 10));
+    }
+}
@@ -0,0 +1,41 @@
+package com.pinframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.pinframework.exceptions.PinInitializationException;
+
+public class PinVirtualThreadsTest {
+
+    @Test
+    public void supportedFromJava21() {
+        assertEquals(Runtime.version().feature() >= 21, PinVirtualThreads.isSupported());
+    }
+
+    @Test
+    public void whenNotSupportedThenBuildFails() {
+        assumeFalse(PinVirtualThreads.isSupported());
+        assertThrows(PinInitializationException.class, () -> new PinServerBuilder().virtualThreads().build());
+    }
+
+    @Test
+    public void whenSupportedThenRunTasks() throws Exception {
+        assumeTrue(PinVirtualThreads.isSupported());
+        ExecutorService executorService = PinVirtualThreads.newExecutor();
+        try {
+            String threadName = executorService.submit(() -> Thread.currentThread().getName())
+                    .get(1, TimeUnit.SECONDS);
+            assertTrue(threadName.startsWith("pin-virtual-"), threadName);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
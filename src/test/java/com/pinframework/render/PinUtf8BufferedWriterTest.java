@@ -0,0 +1,105 @@
+package com.pinframework.render;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.pinframework.PinBufferPool;
+
+public class PinUtf8BufferedWriterTest {
+
+    private static byte[] expected(String text) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] written(String text) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (Writer writer = new PinUtf8BufferedWriter(outputStream)) {
+            writer.write(text);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    public void encodesLikeOutputStreamWriter() throws IOException {
+        String[] texts = { "", "plain ascii", "ñandú ü ß", "€ 中文 ☃", "emoji 😀 and 𝄞",
+                "lonely high \uD83D then text", "lonely low \uDE00 here", "ends with high \uD83D" };
+        for (String text : texts) {
+            assertArrayEquals(expected(text), written(text), text);
+        }
+    }
+
+    @Test
+    public void encodesTextBiggerThanTheBuffer() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < PinBufferPool.BUFFER_SIZE * 3) {
+            text.append("a€😀ñ");
+        }
+        assertArrayEquals(expected(text.toString()), written(text.toString()));
+    }
+
+    @Test
+    public void failsAfterClose() throws IOException {
+        Writer writer = new PinUtf8BufferedWriter(new ByteArrayOutputStream());
+        writer.close();
+        writer.close();
+        assertThrows(IOException.class, () -> writer.write("late"));
+    }
+
+    @Test
+    public void writesCharsArraysAndLines() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (PinUtf8BufferedWriter writer = new PinUtf8BufferedWriter(outputStream)) {
+            writer.write('ñ');
+            writer.write("xa€b".toCharArray(), 1, 2);
+            writer.newLine();
+            writer.flush();
+            assertEquals("ña€" + System.lineSeparator(), outputStream.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void failsToFlushAfterClose() throws IOException {
+        Writer writer = new PinUtf8BufferedWriter(new ByteArrayOutputStream());
+        writer.close();
+        assertThrows(IOException.class, writer::flush);
+        assertThrows(IOException.class, () -> writer.write('a'));
+        assertThrows(IOException.class, () -> writer.write(new char[] { 'a' }, 0, 1));
+    }
+
+    @Test
+    public void closesTheStreamWhenTheLastWriteFails() throws IOException {
+        boolean[] closed = { false };
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("broken pipe");
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        Writer writer = new PinUtf8BufferedWriter(failing);
+        writer.write("lost");
+        assertThrows(IOException.class, writer::close);
+        assertTrue(closed[0]);
+        //the buffer went back to the pool, closing again does nothing
+        writer.close();
+    }
+}